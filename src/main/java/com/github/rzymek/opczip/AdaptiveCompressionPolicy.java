@@ -0,0 +1,109 @@
+package com.github.rzymek.opczip;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * {@link CompressionPolicy} choosing level by entry name (glob patterns, first match wins)
+ * and optionally storing entries whose leading bytes look incompressible.
+ * <pre>
+ * new AdaptiveCompressionPolicy(Deflater.BEST_COMPRESSION)
+ *         .level("xl/worksheets/*.xml", Deflater.BEST_SPEED)
+ *         .level("xl/media/**", CompressionPolicy.STORED)
+ *         .sample(16 * 1024, 7.5);
+ * </pre>
+ *
+ * @see Glob
+ */
+public class AdaptiveCompressionPolicy implements CompressionPolicy {
+    private static final double LOG2 = Math.log(2);
+
+    private final int defaultLevel;
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<Integer> levels = new ArrayList<>();
+    private int sampleSize = 0;
+    private double maxEntropy = 8;
+
+    /**
+     * @param defaultLevel level of entries not matched by any pattern
+     */
+    public AdaptiveCompressionPolicy(int defaultLevel) {
+        this.defaultLevel = defaultLevel;
+    }
+
+    /**
+     * Policy for xlsx files: fast compression of worksheets, best compression of the small parts
+     * and no compression of media or data that looks incompressible.
+     */
+    public static AdaptiveCompressionPolicy forSpreadsheets() {
+        return new AdaptiveCompressionPolicy(Deflater.BEST_COMPRESSION)
+                .level("xl/worksheets/*.xml", Deflater.BEST_SPEED)
+                .level("**.{png,jpg,jpeg,gif,zip,gz}", STORED)
+                .sample(16 * 1024, 7.5);
+    }
+
+    /**
+     * @param glob  entry name pattern
+     * @param level deflate level or {@link #STORED}
+     */
+    public AdaptiveCompressionPolicy level(String glob, int level) {
+        patterns.add(Glob.compile(glob));
+        levels.add(level);
+        return this;
+    }
+
+    /**
+     * Stores entries whose first {@code sampleSize} bytes have Shannon entropy above {@code maxEntropy}
+     * bits per byte. Random (incompressible) data is close to 8.
+     */
+    public AdaptiveCompressionPolicy sample(int sampleSize, double maxEntropy) {
+        this.sampleSize = sampleSize;
+        this.maxEntropy = maxEntropy;
+        return this;
+    }
+
+    @Override
+    public int level(ZipEntry entry) {
+        String name = entry.getName();
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(name).matches()) {
+                return levels.get(i);
+            }
+        }
+        return defaultLevel;
+    }
+
+    @Override
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public int level(ZipEntry entry, byte[] sample, int length, int level) {
+        if (level != STORED && length > 0 && entropy(sample, length) > maxEntropy) {
+            return STORED;
+        }
+        return level;
+    }
+
+    /**
+     * @return Shannon entropy in bits per byte
+     */
+    static double entropy(byte[] data, int length) {
+        int[] counts = new int[256];
+        for (int i = 0; i < length; i++) {
+            counts[data[i] & 0xff]++;
+        }
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / length;
+                entropy -= p * Math.log(p) / LOG2;
+            }
+        }
+        return entropy;
+    }
+}
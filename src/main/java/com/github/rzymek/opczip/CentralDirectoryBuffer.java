@@ -0,0 +1,97 @@
+package com.github.rzymek.opczip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Central directory records encoded as entries are closed.
+ * Up to {@code threshold} bytes are kept in memory, beyond that they are appended to a temporary file,
+ * so memory use does not grow with the number of entries.
+ */
+class CentralDirectoryBuffer extends OutputStream {
+    private static final int INITIAL_SIZE = 4096;
+    private final int threshold;
+    private byte[] buf;
+    private int count = 0;
+    private FileChannel spill;
+    private long spilled = 0;
+
+    CentralDirectoryBuffer(int threshold) {
+        this.threshold = threshold;
+        this.buf = new byte[Math.min(INITIAL_SIZE, threshold)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (count + len > buf.length && buf.length < threshold) {
+            buf = Arrays.copyOf(buf, Math.min(threshold, Math.max(count + len, buf.length * 2)));
+        }
+        if (count + len > buf.length) {
+            spill(ByteBuffer.wrap(buf, 0, count));
+            count = 0;
+            if (len > buf.length) {
+                spill(ByteBuffer.wrap(b, off, len));
+                return;
+            }
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * @return total length of the records
+     */
+    long size() {
+        return spilled + count;
+    }
+
+    /**
+     * Copies all records, in order, to {@code out}.
+     */
+    void copyTo(OutputStream out) throws IOException {
+        if (spill != null) {
+            ByteBuffer chunk = ByteBuffer.allocate(Math.min(buf.length, 64 * 1024));
+            for (long position = 0; position < spilled; ) {
+                chunk.clear();
+                int n = spill.read(chunk, position);
+                if (n < 0) {
+                    throw new IOException("central directory spill file truncated at " + position);
+                }
+                out.write(chunk.array(), 0, n);
+                position += n;
+            }
+        }
+        out.write(buf, 0, count);
+    }
+
+    private void spill(ByteBuffer data) throws IOException {
+        if (spill == null) {
+            spill = FileChannel.open(Files.createTempFile("opczip", ".cen"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        while (data.hasRemaining()) {
+            spilled += spill.write(data, spilled);
+        }
+    }
+
+    /**
+     * Deletes the spill file, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.rzymek.opczip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * OutputStream over a blocking {@link WritableByteChannel}.
+ * Small writes (ZIP headers) are collected and sent together with the next large write (compressed data)
+ * in a single gathering write. Large writes are wrapped, not copied into the pending buffer.
+ * Note that the JDK still copies heap buffers into a temporary direct buffer inside {@code write},
+ * so the gain is fewer and larger channel writes, not zero-copy.
+ */
+class ChannelOutputStream extends OutputStream {
+    private static final int PENDING_SIZE = 8 * 1024;
+    private static final int SMALL_WRITE = 512;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(PENDING_SIZE);
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+
+    ChannelOutputStream(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!pending.hasRemaining()) {
+            flush();
+        }
+        pending.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= SMALL_WRITE) {
+            if (pending.remaining() < len) {
+                flush();
+            }
+            pending.put(b, off, len);
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(b, off, len);
+        pending.flip();
+        if (pending.hasRemaining() && channel instanceof GatheringByteChannel) {
+            gather[0] = pending;
+            gather[1] = data;
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            while (data.hasRemaining()) {
+                gathering.write(gather);
+            }
+            gather[1] = null;
+        } else {
+            writeFully(pending);
+            writeFully(data);
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        pending.flip();
+        writeFully(pending);
+        pending.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.rzymek.opczip;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Deflated parts shared between archives, e.g. {@code styles.xml} or {@code theme1.xml}
+ * which are the same in every generated workbook.
+ * Parts are keyed by SHA-256 of the uncompressed content and compression level.
+ * Least recently used parts are evicted once the total size of deflated data exceeds {@code maxBytes}.
+ * Thread safe - a single cache is meant to be shared by many {@link OpcOutputStream}s.
+ *
+ * @see OpcOutputStream#setCompressedPartCache(CompressedPartCache)
+ */
+public class CompressedPartCache {
+    private final long maxBytes;
+    final int maxEntrySize;
+    private final LinkedHashMap<Key, Part> parts = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxBytes     maximum total size of cached deflated data
+     * @param maxEntrySize entries with more uncompressed data are not cached.
+     *                     {@link OpcOutputStream} buffers up to that many bytes of each entry.
+     */
+    public CompressedPartCache(long maxBytes, int maxEntrySize) {
+        if (maxBytes < 0 || maxEntrySize <= 0) {
+            throw new IllegalArgumentException("invalid cache size: " + maxBytes + ", " + maxEntrySize);
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    static Key key(byte[] data, int length, int level) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        sha256.update(data, 0, length);
+        return new Key(sha256.digest(), level);
+    }
+
+    synchronized Part get(Key key) {
+        Part part = parts.get(key);
+        if (part == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return part;
+    }
+
+    synchronized void put(Key key, Part part) {
+        if (part.deflated.length > maxBytes) {
+            return;
+        }
+        Part previous = parts.put(key, part);
+        bytes += part.deflated.length - (previous == null ? 0 : previous.deflated.length);
+        for (Iterator<Part> eldest = parts.values().iterator(); bytes > maxBytes; ) {
+            bytes -= eldest.next().deflated.length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return parts.size();
+    }
+
+    /**
+     * @return total size of cached deflated data
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    static class Key {
+        final byte[] digest;
+        final int level;
+
+        Key(byte[] digest, int level) {
+            this.digest = digest;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return level == key.level && Arrays.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(digest) + level;
+        }
+    }
+
+    static class Part {
+        final byte[] deflated;
+        final long crc;
+        final long size;
+
+        Part(byte[] deflated, long crc, long size) {
+            this.deflated = deflated;
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.rzymek.opczip;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * Chooses compression level for each entry written to {@link OpcOutputStream}.
+ *
+ * @see OpcOutputStream#setCompressionPolicy(CompressionPolicy)
+ * @see AdaptiveCompressionPolicy
+ */
+public interface CompressionPolicy {
+
+    /**
+     * Level denoting an entry that should not be compressed at all.
+     * Written as {@link ZipEntry#STORED} when the whole entry fits in the sample,
+     * otherwise deflated with {@link java.util.zip.Deflater#NO_COMPRESSION}.
+     */
+    int STORED = -2;
+
+    /**
+     * Consulted on {@link OpcOutputStream#putNextEntry(ZipEntry)}.
+     *
+     * @return deflate level (see {@link java.util.zip.Deflater#setLevel(int)}) or {@link #STORED}
+     */
+    int level(ZipEntry entry);
+
+    /**
+     * @return number of leading bytes of each entry to buffer
+     * and pass to {@link #level(ZipEntry, byte[], int, int)}. Zero disables sampling.
+     */
+    default int sampleSize() {
+        return 0;
+    }
+
+    /**
+     * Refines the level chosen by {@link #level(ZipEntry)} once first bytes of the entry are known.
+     *
+     * @param sample buffer with first bytes of the entry
+     * @param length number of valid bytes in sample. Less than {@link #sampleSize()} if that's the whole entry.
+     * @param level  level returned by {@link #level(ZipEntry)}
+     */
+    default int level(ZipEntry entry, byte[] sample, int length, int level) {
+        return level;
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.rzymek.opczip;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of raw (nowrap) {@link Deflater}s shared by many {@link OpcOutputStream}s,
+ * to avoid allocating native zlib state for every stream.
+ * Deflaters returned to a full or closed pool are {@link Deflater#end() ended}.
+ */
+public class DeflaterPool implements AutoCloseable {
+    private final int maxIdle;
+    private final Deque<Deflater> idle = new ArrayDeque<>();
+    private boolean closed = false;
+
+    /**
+     * @param maxIdle maximum number of deflaters kept for reuse
+     */
+    public DeflaterPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return reset deflater with given level, either pooled or newly created
+     */
+    public Deflater borrow(int level) {
+        Deflater deflater;
+        synchronized (this) {
+            deflater = idle.pollFirst();
+        }
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        deflater.setLevel(level);
+        // zlib applies a level change on the next deflate call, which must not be the first one with data.
+        // Without input nothing is written, so a single byte of output space is enough.
+        deflater.deflate(new byte[1]);
+        return deflater;
+    }
+
+    /**
+     * Returns deflater to the pool. It must not be used by the caller afterwards.
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        synchronized (this) {
+            if (!closed && idle.size() < maxIdle) {
+                idle.addFirst(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    /**
+     * Ends all idle deflaters. Deflaters released afterwards are ended immediately.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Deflater deflater : idle) {
+                deflater.end();
+            }
+            idle.clear();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.rzymek.opczip;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Growable in-memory output drained by the consumer. Drained space is reused.
+ */
+class DrainableBuffer extends OutputStream {
+    private byte[] buf;
+    private int start = 0;
+    private int end = 0;
+
+    DrainableBuffer(int initialSize) {
+        this.buf = new byte[initialSize];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[end++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, end, len);
+        end += len;
+    }
+
+    /**
+     * @return number of bytes waiting to be drained
+     */
+    int size() {
+        return end - start;
+    }
+
+    /**
+     * @return number of bytes moved to {@code dst}
+     */
+    int drainTo(ByteBuffer dst) {
+        int n = Math.min(dst.remaining(), end - start);
+        dst.put(buf, start, n);
+        drained(n);
+        return n;
+    }
+
+    /**
+     * @return number of bytes moved to {@code b}
+     */
+    int drainTo(byte[] b, int off, int len) {
+        int n = Math.min(len, end - start);
+        System.arraycopy(buf, start, b, off, n);
+        drained(n);
+        return n;
+    }
+
+    private void drained(int n) {
+        start += n;
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+    }
+
+    private void ensureCapacity(int len) {
+        if (end + len <= buf.length) {
+            return;
+        }
+        int size = end - start;
+        if (size + len > buf.length) {
+            byte[] grown = new byte[Math.max(size + len, buf.length * 2)];
+            System.arraycopy(buf, start, grown, 0, size);
+            buf = grown;
+        } else {
+            System.arraycopy(buf, start, buf, 0, size);
+        }
+        start = 0;
+        end = size;
+    }
+}
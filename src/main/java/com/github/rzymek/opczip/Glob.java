@@ -0,0 +1,56 @@
+package com.github.rzymek.opczip;
+
+import java.util.regex.Pattern;
+
+/**
+ * Glob patterns for zip entry names.
+ * <ul>
+ * <li>{@code *} matches any characters except {@code /}</li>
+ * <li>{@code **} matches any characters</li>
+ * <li>{@code ?} matches a single character except {@code /}</li>
+ * <li>{@code {a,b}} matches any of the alternatives</li>
+ * </ul>
+ */
+public class Glob {
+
+    private Glob() {
+    }
+
+    public static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    regex.append("(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    regex.append(')');
+                    inGroup = false;
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                default:
+                    if (".[]()+^$|\\".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
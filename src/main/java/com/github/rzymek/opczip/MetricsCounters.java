@@ -0,0 +1,102 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.reader.ReadListener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe totals of writer and reader events, e.g. to be exported to monitoring.
+ * One instance can be shared by many streams.
+ */
+public class MetricsCounters implements WriteListener, ReadListener {
+    private final LongAdder entriesWritten = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder crcNanos = new LongAdder();
+    private final LongAdder skippedBytes = new LongAdder();
+    private final LongAdder scannedBytes = new LongAdder();
+    private final LongAdder putAsideBytes = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+
+    @Override
+    public void entryWritten(String name, long size, long compressedSize,
+                             long deflateNanos, long writeNanos, long crcNanos) {
+        this.entriesWritten.increment();
+        this.uncompressedBytes.add(size);
+        this.compressedBytes.add(compressedSize);
+        this.deflateNanos.add(deflateNanos);
+        this.writeNanos.add(writeNanos);
+        this.crcNanos.add(crcNanos);
+    }
+
+    @Override
+    public void entrySkipped(CharSequence name, long bytes) {
+        skippedBytes.add(bytes);
+    }
+
+    @Override
+    public void entryScanned(CharSequence name, long bytes) {
+        scannedBytes.add(bytes);
+    }
+
+    @Override
+    public void entryPutAside(CharSequence name, long bytes, boolean spilled) {
+        (spilled ? spilledBytes : putAsideBytes).add(bytes);
+    }
+
+    public long getEntriesWritten() {
+        return entriesWritten.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return compressed to uncompressed size ratio, or 0 if nothing was written
+     */
+    public double getCompressionRatio() {
+        long uncompressed = getUncompressedBytes();
+        return uncompressed == 0 ? 0 : (double) getCompressedBytes() / uncompressed;
+    }
+
+    public long getDeflateNanos() {
+        return deflateNanos.sum();
+    }
+
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    public long getCrcNanos() {
+        return crcNanos.sum();
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes.sum();
+    }
+
+    public long getScannedBytes() {
+        return scannedBytes.sum();
+    }
+
+    /**
+     * @return bytes put aside in memory
+     */
+    public long getPutAsideBytes() {
+        return putAsideBytes.sum();
+    }
+
+    /**
+     * @return bytes put aside in spill files
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.sum();
+    }
+}
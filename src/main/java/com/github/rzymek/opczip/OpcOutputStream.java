@@ -2,10 +2,16 @@ package com.github.rzymek.opczip;
 
 import com.github.rzymek.opczip.Zip64Impl.Entry;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.*;
 
 /**
@@ -13,13 +19,40 @@ import java.util.zip.*;
  * Drop in replacement for `java.util.ZipOutputStream`.
  */
 public class OpcOutputStream extends DeflaterOutputStream {
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    private static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+    private static final int CEN_MEMORY_THRESHOLD = 1024 * 1024;
+    private static final int PIPELINED_CRC_MIN_LENGTH = 64 * 1024;
 
     private final Zip64Impl spec;
-    private final List<Entry> entries = new ArrayList<>();
+    private final DeflaterPool pool;
+    private final CentralDirectoryBuffer cen = new CentralDirectoryBuffer(CEN_MEMORY_THRESHOLD);
+    private long entriesCount = 0;
     private final CRC32 crc = new CRC32();
     private Entry current;
-    private int written = 0;
+    private long written = 0;
     private boolean finished = false;
+    private boolean closed = false;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private ParallelDeflater parallel;
+    private Executor crcExecutor;
+    private boolean parallelEntry = false;
+    private boolean storedEntry = false;
+    private long storedWritten = 0;
+    private CompressionPolicy policy;
+    private ZipEntry sampledEntry;
+    private byte[] sample;
+    private int sampleLength;
+    private int sampleLevel;
+    private CompressedPartCache cache;
+    private ZipEntry cachedEntry;
+    private byte[] cached;
+    private int cachedLength;
+    private int cachedLevel;
+    private WriteListener listener;
+    private long deflateNanos;
+    private long writeNanos;
+    private long crcNanos;
 
     /**
      * Creates ZIP64 output stream
@@ -27,18 +60,129 @@ public class OpcOutputStream extends DeflaterOutputStream {
      * @param out target stream to write compressed data to
      */
     public OpcOutputStream(OutputStream out) {
-        super(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates ZIP64 output stream
+     *
+     * @param out        target stream to write compressed data to
+     * @param bufferSize size of deflate output buffer, i.e. the size of writes to {@code out}
+     */
+    public OpcOutputStream(OutputStream out, int bufferSize) {
+        this(out, bufferSize, null);
+    }
+
+    /**
+     * Creates ZIP64 output stream using a deflater borrowed from {@code pool}.
+     * The deflater is returned to the pool on {@link #close()}.
+     *
+     * @param out        target stream to write compressed data to
+     * @param bufferSize size of deflate output buffer, i.e. the size of writes to {@code out}
+     * @param pool       pool to borrow deflaters from, {@code null} to create a private one
+     */
+    public OpcOutputStream(OutputStream out, int bufferSize, DeflaterPool pool) {
+        super(out, deflater(pool, bufferSize), bufferSize);
         this.spec = new Zip64Impl(out);
+        this.pool = pool;
+    }
+
+    private static Deflater deflater(DeflaterPool pool, int bufferSize) {
+        // validated before borrowing, so that a failing constructor does not lose a pooled deflater
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size <= 0");
+        }
+        return pool == null
+                ? new Deflater(Deflater.DEFAULT_COMPRESSION, true)
+                : pool.borrow(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates ZIP64 output stream writing directly to a channel.
+     * Headers are coalesced and written together with the following compressed data in a single gathering write.
+     *
+     * @param channel blocking channel to write compressed data to, e.g. {@link java.nio.channels.FileChannel}
+     */
+    public OpcOutputStream(WritableByteChannel channel) {
+        this(new ChannelOutputStream(channel), CHANNEL_BUFFER_SIZE, null);
     }
 
     /**
      * @see Deflater#setLevel(int)
      */
     public void setLevel(int level) {
+        this.level = level;
         super.def.setLevel(level);
     }
 
     /**
+     * Enables parallel (pigz-style) compression of subsequent entries.
+     * Entry data is split into {@code blockSize} blocks that are deflated concurrently on {@code executor}.
+     * The resulting archive layout is the same as in sequential mode.
+     *
+     * @param executor  executor to compress blocks on, {@code null} to go back to sequential compression
+     * @param blockSize size of uncompressed data compressed by a single task, e.g. 128 KiB
+     */
+    public void setParallelDeflate(Executor executor, int blockSize) {
+        if (parallelEntry) {
+            throw new IllegalStateException("cannot change parallel deflate settings while writing an entry");
+        }
+        if (parallel != null) {
+            parallel.end();
+        }
+        this.parallel = executor == null ? null : new ParallelDeflater(out, executor, blockSize, pool);
+    }
+
+    /**
+     * Enables computing CRC-32 of large writes on {@code executor} while the data is being deflated
+     * on the calling thread. Checksum is joined before {@code write} returns, so the caller is free to reuse the buffer.
+     * Applies to sequentially deflated entries and writes of at least 64 KiB, smaller writes are not worth the hand-off.
+     *
+     * @param executor executor to compute CRC-32 on, {@code null} to compute it on the calling thread
+     */
+    public void setPipelinedCrc(Executor executor) {
+        this.crcExecutor = executor;
+    }
+
+    /**
+     * Sets policy choosing compression level of each subsequent entry.
+     * Level set by {@link #setLevel(int)} is not used while policy is set.
+     *
+     * @param policy per entry compression policy, {@code null} to use single level for all entries
+     */
+    public void setCompressionPolicy(CompressionPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Sets cache of deflated parts consulted for each subsequent deflated entry.
+     * Entry data is buffered until {@link #closeEntry()}, then looked up by content -
+     * a cached part is copied as is, otherwise the entry is deflated and added to the cache.
+     * Entries outgrowing the cache's {@code maxEntrySize} are compressed as usual.
+     *
+     * @param cache cache shared between archives, {@code null} to stop using it
+     */
+    public void setCompressedPartCache(CompressedPartCache cache) {
+        if (cachedEntry != null) {
+            throw new IllegalStateException("cannot change compressed part cache while writing an entry");
+        }
+        this.cache = cache;
+        this.cached = null;
+    }
+
+    /**
+     * Sets listener notified about each written entry and the finished archive.
+     *
+     * @param listener listener, {@code null} to stop measuring
+     */
+    public void setListener(WriteListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Entries with method set to {@link ZipEntry#STORED} are copied without compression.
+     * Size and CRC-32 of such entry have to be set up front.
+     *
      * @see java.util.zip.ZipOutputStream#putNextEntry(ZipEntry)
      */
     public void putNextEntry(ZipEntry e) throws IOException {
@@ -47,8 +191,209 @@ public class OpcOutputStream extends DeflaterOutputStream {
         }
         current = new Entry(e.getName());
         current.offset = written;
+        if (e.getMethod() == ZipEntry.STORED) {
+            if (e.getSize() == -1 || e.getCrc() == -1
+                    || (e.getCompressedSize() != -1 && e.getCompressedSize() != e.getSize())) {
+                throw new ZipException("STORED entry missing size, compressed size, or crc-32");
+            }
+            beginStored(e.getSize(), e.getCrc());
+            return;
+        }
+        int entryLevel = policy == null ? level : policy.level(e);
+        if (cache != null && entryLevel != CompressionPolicy.STORED) {
+            // LFH is written once the entry is complete or outgrows the cache
+            cachedEntry = e;
+            cachedLevel = entryLevel;
+            cachedLength = 0;
+            if (cached == null) {
+                cached = new byte[cache.maxEntrySize];
+            }
+        } else {
+            beginEntry(e, entryLevel);
+        }
+    }
+
+    private void beginEntry(ZipEntry e, int entryLevel) throws IOException {
+        if (policy != null && policy.sampleSize() > 0) {
+            // LFH is written once the sample is collected
+            sampledEntry = e;
+            sample = new byte[policy.sampleSize()];
+            sampleLength = 0;
+            sampleLevel = entryLevel;
+        } else if (entryLevel == CompressionPolicy.STORED && e.getSize() != -1 && e.getCrc() != -1) {
+            beginStored(e.getSize(), e.getCrc());
+        } else {
+            beginDeflated(entryLevel);
+        }
+    }
+
+    private void beginStored(long size, long crc) throws IOException {
+        current.method = ZipEntry.STORED;
+        current.size = size;
+        current.compressedSize = size;
+        current.crc = crc;
+        storedEntry = true;
+        storedWritten = 0;
         written += spec.writeLFH(current);
-        entries.add(current);
+    }
+
+    private void beginDeflated(int entryLevel) throws IOException {
+        if (entryLevel == CompressionPolicy.STORED) {
+            // size and CRC are not known up front
+            entryLevel = Deflater.NO_COMPRESSION;
+        }
+        written += spec.writeLFH(current);
+        parallelEntry = parallel != null;
+        if (parallelEntry) {
+            parallel.start(entryLevel);
+        } else {
+            def.setLevel(entryLevel);
+        }
+    }
+
+    private void beginSampled(boolean complete) throws IOException {
+        byte[] data = sample;
+        int length = sampleLength;
+        sample = null;
+        int entryLevel = policy.level(sampledEntry, data, length, sampleLevel);
+        sampledEntry = null;
+        if (entryLevel == CompressionPolicy.STORED && complete) {
+            CRC32 checksum = new CRC32();
+            checksum.update(data, 0, length);
+            beginStored(length, checksum.getValue());
+        } else {
+            beginDeflated(entryLevel);
+        }
+        writeEntryData(data, 0, length);
+    }
+
+    /**
+     * Entry is too big for the cache, it is compressed as usual starting with the buffered data.
+     */
+    private void beginUncached() throws IOException {
+        ZipEntry e = cachedEntry;
+        cachedEntry = null;
+        beginEntry(e, cachedLevel);
+        write(cached, 0, cachedLength);
+    }
+
+    /**
+     * Same level decision as for an uncached entry: sampled entries are stored only if complete within the sample.
+     */
+    private void closeCached() throws IOException {
+        ZipEntry e = cachedEntry;
+        cachedEntry = null;
+        int entryLevel = cachedLevel;
+        if (policy != null && policy.sampleSize() > 0) {
+            int length = Math.min(cachedLength, policy.sampleSize());
+            entryLevel = policy.level(e, cached, length, cachedLevel);
+            if (entryLevel == CompressionPolicy.STORED && length == cachedLength) {
+                CRC32 checksum = new CRC32();
+                checksum.update(cached, 0, cachedLength);
+                beginStored(cachedLength, checksum.getValue());
+                writeEntryData(cached, 0, cachedLength);
+                closeEntry();
+                return;
+            }
+            if (entryLevel == CompressionPolicy.STORED) {
+                entryLevel = Deflater.NO_COMPRESSION;
+            }
+        }
+        CompressedPartCache.Key key = CompressedPartCache.key(cached, cachedLength, entryLevel);
+        CompressedPartCache.Part part = cache.get(key);
+        if (part == null) {
+            long start = listener != null ? System.nanoTime() : 0;
+            part = deflateCached(entryLevel);
+            if (listener != null) {
+                deflateNanos += System.nanoTime() - start;
+            }
+            cache.put(key, part);
+        }
+        writePrecompressed(part.deflated, part.crc, part.size);
+    }
+
+    private CompressedPartCache.Part deflateCached(int entryLevel) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(cachedLength / 4 + 64);
+        def.setLevel(entryLevel);
+        def.setInput(cached, 0, cachedLength);
+        def.finish();
+        while (!def.finished()) {
+            int n = def.deflate(buf, 0, buf.length);
+            compressed.write(buf, 0, n);
+        }
+        def.reset();
+        crc.update(cached, 0, cachedLength);
+        return new CompressedPartCache.Part(compressed.toByteArray(), crc.getValue(), cachedLength);
+    }
+
+    /**
+     * Writes a complete {@link ZipEntry#DEFLATED} entry from already compressed data,
+     * e.g. a part shared by all generated archives compressed once up front.
+     *
+     * @param deflated raw deflate stream (no zlib header), as produced by {@code new Deflater(level, true)}
+     * @param crc      CRC-32 of uncompressed data
+     * @param size     size of uncompressed data
+     */
+    public void writePrecompressedEntry(String name, byte[] deflated, long crc, long size) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        current = new Entry(name);
+        current.offset = written;
+        writePrecompressed(deflated, crc, size);
+    }
+
+    private void writePrecompressed(byte[] deflated, long crc, long size) throws IOException {
+        written += spec.writeLFH(current);
+        long start = listener != null ? System.nanoTime() : 0;
+        out.write(deflated);
+        if (listener != null) {
+            writeNanos += System.nanoTime() - start;
+        }
+        current.compressedSize = deflated.length;
+        current.size = size;
+        current.crc = crc;
+        endEntry();
+    }
+
+    /**
+     * Writes a complete {@link ZipEntry#STORED} entry. Size and CRC-32 are computed from {@code data}.
+     */
+    public void writeStoredEntry(String name, byte[] data) throws IOException {
+        CRC32 checksum = new CRC32();
+        checksum.update(data, 0, data.length);
+        putNextEntry(storedEntry(name, data.length, checksum.getValue()));
+        write(data, 0, data.length);
+        closeEntry();
+    }
+
+    /**
+     * Writes a complete {@link ZipEntry#STORED} entry with the contents of {@code file}.
+     * The file is read twice: first to compute CRC-32, then to copy it.
+     */
+    public void writeStoredEntry(String name, Path file) throws IOException {
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                checksum.update(buffer, 0, n);
+            }
+        }
+        putNextEntry(storedEntry(name, Files.size(file), checksum.getValue()));
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                write(buffer, 0, n);
+            }
+        }
+        closeEntry();
+    }
+
+    private static ZipEntry storedEntry(String name, long size, long crc) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCrc(crc);
+        return entry;
     }
 
     /**
@@ -58,18 +403,56 @@ public class OpcOutputStream extends DeflaterOutputStream {
         if (current == null) {
             throw new IllegalStateException("not current zip current");
         }
-        def.finish();
-        while (!def.finished()) {
-            deflate();
+        if (cachedEntry != null) {
+            closeCached();
+            return;
         }
+        if (sample != null) {
+            beginSampled(true);
+        }
+        if (storedEntry) {
+            if (storedWritten != current.size) {
+                throw new ZipException("invalid entry size (expected " + current.size
+                        + " but got " + storedWritten + " bytes)");
+            }
+            if (crc.getValue() != current.crc) {
+                throw new ZipException("invalid entry crc-32 (expected 0x" + Long.toHexString(current.crc)
+                        + " but got 0x" + Long.toHexString(crc.getValue()) + ")");
+            }
+        } else if (parallelEntry) {
+            parallel.finish();
+            current.size = parallel.size;
+            current.compressedSize = parallel.compressedSize;
+            current.crc = parallel.crc;
+        } else {
+            def.finish();
+            while (!def.finished()) {
+                deflate();
+            }
+            current.size = def.getBytesRead();
+            current.compressedSize = def.getBytesWritten();
+            current.crc = crc.getValue();
+        }
+        endEntry();
+    }
 
-        current.size = def.getBytesRead();
-        current.compressedSize = (int) def.getBytesWritten();
-        current.crc = crc.getValue();
-
+    private void endEntry() throws IOException {
         written += current.compressedSize;
-        written += spec.writeDAT(current);
+        if (!storedEntry) {
+            written += spec.writeDAT(current);
+        }
+        if (listener != null) {
+            listener.entryWritten(current.filename, current.size, current.compressedSize,
+                    deflateNanos, writeNanos, crcNanos);
+            deflateNanos = 0;
+            writeNanos = 0;
+            crcNanos = 0;
+        }
+        spec.writeCEN(current, cen);
+        entriesCount++;
         current = null;
+        parallelEntry = false;
+        storedEntry = false;
         def.reset();
         crc.reset();
     }
@@ -86,11 +469,16 @@ public class OpcOutputStream extends DeflaterOutputStream {
         if(current != null) {
             closeEntry();
         }
-        int offset = written;
-        for (Entry entry : entries) {
-            written += spec.writeCEN(entry);
+        long offset = written;
+        cen.copyTo(out);
+        // release the spill file now, the stream itself may be closed much later
+        cen.close();
+        written += cen.size();
+        written += spec.writeEND(entriesCount, offset, cen.size());
+        out.flush();
+        if (listener != null) {
+            listener.archiveFinished(entriesCount, written);
         }
-        written += spec.writeEND(entries.size(), offset, written - offset);
         finished = true;
     }
 
@@ -104,16 +492,122 @@ public class OpcOutputStream extends DeflaterOutputStream {
         } else if (len == 0) {
             return;
         }
-        super.write(b, off, len);
+        if (cachedEntry != null) {
+            if (len <= cached.length - cachedLength) {
+                System.arraycopy(b, off, cached, cachedLength, len);
+                cachedLength += len;
+                return;
+            }
+            beginUncached();
+        }
+        if (sample != null) {
+            int n = Math.min(len, sample.length - sampleLength);
+            System.arraycopy(b, off, sample, sampleLength, n);
+            sampleLength += n;
+            if (sampleLength < sample.length) {
+                return;
+            }
+            beginSampled(false);
+            off += n;
+            len -= n;
+            if (len == 0) {
+                return;
+            }
+        }
+        writeEntryData(b, off, len);
+    }
+
+    private void writeEntryData(byte[] b, int off, int len) throws IOException {
+        if (listener != null) {
+            writeEntryDataMeasured(b, off, len);
+        } else if (storedEntry) {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            storedWritten += len;
+        } else if (parallelEntry) {
+            parallel.write(b, off, len);
+        } else if (crcExecutor != null && len >= PIPELINED_CRC_MIN_LENGTH) {
+            writePipelined(b, off, len);
+        } else {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+    }
+
+    private void writePipelined(byte[] b, int off, int len) throws IOException {
+        CompletableFuture<Void> checksum = CompletableFuture.runAsync(() -> crc.update(b, off, len), crcExecutor);
+        try {
+            super.write(b, off, len);
+        } finally {
+            try {
+                checksum.join();
+            } catch (CompletionException e) {
+                throw new IOException("Pipelined CRC-32 failed", e.getCause());
+            }
+        }
+    }
+
+    private void writeEntryDataMeasured(byte[] b, int off, int len) throws IOException {
+        if (parallelEntry) {
+            parallel.write(b, off, len);
+            return;
+        }
+        long start = System.nanoTime();
+        if (storedEntry) {
+            out.write(b, off, len);
+            storedWritten += len;
+            writeNanos += System.nanoTime() - start;
+        } else {
+            super.write(b, off, len); // measured in deflate()
+        }
+        long crcStart = System.nanoTime();
         crc.update(b, off, len);
+        crcNanos += System.nanoTime() - crcStart;
     }
 
     /**
+     * Same as {@link DeflaterOutputStream#deflate()}, measuring deflate and write time if listener is set.
+     */
+    @Override
+    protected void deflate() throws IOException {
+        if (listener == null) {
+            super.deflate();
+            return;
+        }
+        long start = System.nanoTime();
+        int len = def.deflate(buf, 0, buf.length);
+        long deflated = System.nanoTime();
+        deflateNanos += deflated - start;
+        if (len > 0) {
+            out.write(buf, 0, len);
+            writeNanos += System.nanoTime() - deflated;
+        }
+    }
+
+    /**
+     * Finishes the archive, closes target stream and releases the deflater.
+     *
      * @see ZipOutputStream#close()
      */
     @Override
     public void close() throws IOException {
-        finish();
-        out.close();
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+            out.close();
+        } finally {
+            closed = true;
+            cen.close();
+            if (parallel != null) {
+                parallel.end();
+            }
+            if (pool != null) {
+                pool.release(def);
+            } else {
+                def.end();
+            }
+        }
     }
 }
@@ -0,0 +1,136 @@
+package com.github.rzymek.opczip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.ZipEntry;
+
+/**
+ * Non-blocking ZIP64 writer for reactive/event-loop environments.
+ * The producer pushes entries and data, the consumer pulls compressed archive bytes with {@link #read(ByteBuffer)}.
+ * No thread ever blocks: when the consumer falls behind, {@link #offer(ByteBuffer)} refuses data (backpressure)
+ * until enough output is read.
+ * Producer and consumer may run on different threads.
+ */
+public class OpcZipChannel implements ReadableByteChannel {
+    private static final int DEFAULT_HIGH_WATER_MARK = 256 * 1024;
+
+    private final DrainableBuffer output;
+    private final OpcOutputStream zip;
+    private final int highWaterMark;
+    private boolean finished = false;
+    private boolean open = true;
+
+    public OpcZipChannel() {
+        this(DEFAULT_HIGH_WATER_MARK);
+    }
+
+    /**
+     * @param highWaterMark pending output size above which {@link #offer(ByteBuffer)} refuses data
+     */
+    public OpcZipChannel(int highWaterMark) {
+        this.highWaterMark = highWaterMark;
+        this.output = new DrainableBuffer(Math.min(highWaterMark, 64 * 1024));
+        this.zip = new OpcOutputStream(output);
+    }
+
+    /**
+     * @see OpcOutputStream#setLevel(int)
+     */
+    public synchronized void setLevel(int level) {
+        zip.setLevel(level);
+    }
+
+    /**
+     * @see OpcOutputStream#putNextEntry(ZipEntry)
+     */
+    public synchronized void putNextEntry(ZipEntry entry) throws IOException {
+        ensureOpen();
+        zip.putNextEntry(entry);
+    }
+
+    /**
+     * Compresses all remaining bytes of {@code data} into the current entry, unless too much output is pending.
+     * Data is compressed right away, so chunks should be reasonably small (e.g. up to 64 KiB).
+     *
+     * @return {@code false} if the data was not taken because the consumer has to read first
+     */
+    public synchronized boolean offer(ByteBuffer data) throws IOException {
+        ensureOpen();
+        if (!isWritable()) {
+            return false;
+        }
+        if (data.hasArray()) {
+            zip.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            byte[] chunk = new byte[Math.min(data.remaining(), 8 * 1024)];
+            while (data.hasRemaining()) {
+                int n = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, n);
+                zip.write(chunk, 0, n);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether {@link #offer(ByteBuffer)} would currently accept data
+     */
+    public synchronized boolean isWritable() {
+        return output.size() < highWaterMark;
+    }
+
+    /**
+     * @see OpcOutputStream#closeEntry()
+     */
+    public synchronized void closeEntry() throws IOException {
+        ensureOpen();
+        zip.closeEntry();
+    }
+
+    /**
+     * Writes central directory. The consumer reads till {@code -1} afterwards.
+     */
+    public synchronized void finish() throws IOException {
+        ensureOpen();
+        zip.finish();
+        finished = true;
+    }
+
+    /**
+     * @return number of bytes read, possibly 0 if the producer has not supplied more data yet,
+     * or {@code -1} once the archive is finished and fully read
+     */
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (output.size() == 0 && finished) {
+            return -1;
+        }
+        return output.drainTo(dst);
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Releases the deflater. Unread output is discarded.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (open) {
+            open = false;
+            zip.close();
+        }
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
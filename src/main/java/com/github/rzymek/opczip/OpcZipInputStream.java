@@ -0,0 +1,108 @@
+package com.github.rzymek.opczip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.zip.ZipEntry;
+
+/**
+ * ZIP64 archive produced on demand as it is read, e.g. to be handed to an HTTP client or an upload API.
+ * Entries are opened lazily and compressed as the consumer reads, with the same layout as {@link OpcOutputStream}.
+ * Memory use does not depend on archive size.
+ */
+public class OpcZipInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Iterator<String> names;
+    private final EntryOpener opener;
+    private final DrainableBuffer output = new DrainableBuffer(CHUNK_SIZE * 2);
+    private final OpcOutputStream zip = new OpcOutputStream(output);
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private InputStream current;
+    private boolean finished = false;
+
+    /**
+     * @param names  names of entries in archive order
+     * @param opener opens data of an entry when it is reached. The stream is closed once copied.
+     */
+    public OpcZipInputStream(Iterator<String> names, EntryOpener opener) {
+        this.names = names;
+        this.opener = opener;
+    }
+
+    /**
+     * @see OpcOutputStream#setLevel(int)
+     */
+    public void setLevel(int level) {
+        zip.setLevel(level);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == 1 ? b[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (output.size() == 0) {
+            if (finished) {
+                return -1;
+            }
+            produce();
+        }
+        return output.drainTo(b, off, len);
+    }
+
+    @Override
+    public int available() {
+        return output.size();
+    }
+
+    /**
+     * Compresses next chunk of the current entry, moving on to the next entry or central directory at the end.
+     */
+    private void produce() throws IOException {
+        if (current == null) {
+            if (names.hasNext()) {
+                String name = names.next();
+                zip.putNextEntry(new ZipEntry(name));
+                current = opener.open(name);
+            } else {
+                zip.finish();
+                finished = true;
+            }
+            return;
+        }
+        int n = current.read(chunk);
+        if (n < 0) {
+            current.close();
+            current = null;
+            zip.closeEntry();
+        } else {
+            zip.write(chunk, 0, n);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        } finally {
+            finished = true;
+            zip.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryOpener {
+        InputStream open(String name) throws IOException;
+    }
+}
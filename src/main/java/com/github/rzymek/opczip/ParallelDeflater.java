@@ -0,0 +1,228 @@
+package com.github.rzymek.opczip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * pigz-style block compression.
+ * Entry data is split into fixed-size blocks, each deflated concurrently with the tail of the previous block
+ * as a preset dictionary. Non-final blocks end with a sync flush, so the raw deflate outputs concatenated in order
+ * form a single valid deflate stream.
+ */
+class ParallelDeflater {
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int GF2_DIM = 32;
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int blockSize;
+    private final int maxPending;
+    private final DeflaterPool deflaters;
+    private final boolean sharedPool;
+    private final Deque<CompletableFuture<Block>> pending = new ArrayDeque<>();
+
+    private int level;
+    private byte[] block;
+    private int blockLength;
+    private byte[] previous;
+    private int previousLength;
+
+    long size;
+    long compressedSize;
+    long crc;
+
+    private static class Block {
+        final byte[] compressed;
+        final long crc;
+        final int length;
+
+        Block(byte[] compressed, long crc, int length) {
+            this.compressed = compressed;
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+
+    /**
+     * @param pool deflaters to compress blocks with, {@code null} for a private pool ended by {@link #end()}
+     */
+    ParallelDeflater(OutputStream out, Executor executor, int blockSize, DeflaterPool pool) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.out = out;
+        this.sharedPool = pool != null;
+        this.deflaters = sharedPool ? pool : new DeflaterPool(Integer.MAX_VALUE);
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPending = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    void start(int level) {
+        this.level = level;
+        this.block = new byte[blockSize];
+        this.blockLength = 0;
+        this.previous = null;
+        this.previousLength = 0;
+        this.size = 0;
+        this.compressedSize = 0;
+        this.crc = 0;
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses the last block and writes out all pending ones.
+     */
+    void finish() throws IOException {
+        submit(true);
+        while (!pending.isEmpty()) {
+            writeBlock(pending.removeFirst());
+        }
+        block = null;
+        previous = null;
+    }
+
+    void end() {
+        if (!sharedPool) {
+            deflaters.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        final byte[] dictionary = previous;
+        final int dictionaryLength = Math.min(previousLength, DICTIONARY_SIZE);
+        final int dictionaryOffset = previousLength - dictionaryLength;
+        final int blockLevel = level;
+        pending.addLast(CompletableFuture.supplyAsync(
+                () -> compress(data, length, dictionary, dictionaryOffset, dictionaryLength, blockLevel, last),
+                executor
+        ));
+        previous = data;
+        previousLength = length;
+        block = last ? null : new byte[blockSize];
+        blockLength = 0;
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peekFirst().isDone())) {
+            writeBlock(pending.removeFirst());
+        }
+    }
+
+    private void writeBlock(CompletableFuture<Block> future) throws IOException {
+        Block result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Parallel deflate failed", e.getCause());
+        }
+        out.write(result.compressed);
+        compressedSize += result.compressed.length;
+        crc = crc32Combine(crc, result.crc, result.length);
+        size += result.length;
+    }
+
+    private Block compress(byte[] data, int length,
+                           byte[] dictionary, int dictionaryOffset, int dictionaryLength,
+                           int level, boolean last) {
+        Deflater deflater = deflaters.borrow(level);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionaryOffset, dictionaryLength);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buf = new byte[Math.max(512, Math.min(length, 64 * 1024))];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf, 0, buf.length);
+                    compressed.write(buf, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    // a pending level change may return without consuming any input
+                    n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buf, 0, n);
+                } while (n == buf.length || !deflater.needsInput());
+            }
+            CRC32 blockCrc = new CRC32();
+            blockCrc.update(data, 0, length);
+            return new Block(compressed.toByteArray(), blockCrc.getValue(), length);
+        } finally {
+            deflaters.release(deflater);
+        }
+    }
+
+    /**
+     * Port of zlib's crc32_combine(). Computes CRC-32 of concatenated data
+     * given CRC-32 values of both parts and the length of the second one.
+     */
+    static long crc32Combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[GF2_DIM];
+        long[] odd = new long[GF2_DIM];
+        odd[0] = 0xedb88320L;                // CRC-32 polynomial
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);          // two zero bits
+        gf2MatrixSquare(odd, even);          // four zero bits
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
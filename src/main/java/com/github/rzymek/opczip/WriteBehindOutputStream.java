@@ -0,0 +1,275 @@
+package com.github.rzymek.opczip;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OutputStream handing data over to a background writer, so that compression is not stalled by a slow target
+ * (network filesystem, HTTP upload) and vice versa:
+ * <pre>
+ *     new OpcOutputStream(new WriteBehindOutputStream(out))
+ * </pre>
+ * Data is copied into a fixed pool of buffers. Filled buffers are queued and written to the target
+ * by the background writer, {@code write} blocks only when all buffers are waiting to be written.
+ * A failure of the target is rethrown by the next {@code write}, {@code flush} or {@code close},
+ * i.e. by the next {@code write}, {@code closeEntry} or {@code finish} of the enclosing {@link OpcOutputStream}.
+ * The target is closed by whichever thread writes the last buffer, so an interrupted {@code close} never
+ * closes it under the feet of the background writer.
+ */
+public class WriteBehindOutputStream extends OutputStream {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_BUFFERS = 4;
+    private static final Chunk END = new Chunk(0);
+
+    private final OutputStream out;
+    private final int buffers;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean targetClosed = new AtomicBoolean();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closing = false;
+    private volatile Throwable error;
+    private Chunk current;
+    private boolean closed = false;
+
+    /**
+     * Writes on a dedicated daemon thread, using four 64 KiB buffers.
+     */
+    public WriteBehindOutputStream(OutputStream out) {
+        this(out, task -> {
+            Thread thread = new Thread(task, "opczip-write-behind");
+            thread.setDaemon(true);
+            thread.start();
+        }, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * @param out        target stream, written to only by the background writer. Closed by {@link #close()}.
+     * @param executor   executor running the background writer. It occupies one thread until {@link #close()}.
+     *                   Data the writer has not been started for by then is written by {@link #close()} itself.
+     * @param bufferSize size of a single buffer, i.e. the size of writes to {@code out}
+     * @param buffers    number of buffers, bounding the memory used and the amount of data not yet written
+     */
+    public WriteBehindOutputStream(OutputStream out, Executor executor, int bufferSize, int buffers) {
+        if (bufferSize <= 0 || buffers <= 0) {
+            throw new IllegalArgumentException("bufferSize and buffers must be positive: " + bufferSize + ", " + buffers);
+        }
+        this.out = out;
+        this.buffers = buffers;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.filled = new ArrayBlockingQueue<>(buffers + 1); // room for all buffers and END, adding never blocks
+        for (int i = 0; i < buffers; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        executor.execute(this::start);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        Chunk chunk = current();
+        chunk.data[chunk.length++] = (byte) b;
+        if (chunk.length == chunk.data.length) {
+            handOff();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+        while (len > 0) {
+            Chunk chunk = current();
+            int n = Math.min(len, chunk.data.length - chunk.length);
+            System.arraycopy(b, off, chunk.data, chunk.length, n);
+            chunk.length += n;
+            off += n;
+            len -= n;
+            if (chunk.length == chunk.data.length) {
+                handOff();
+            }
+        }
+    }
+
+    /**
+     * Waits until all data is written and flushes the target stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        handOff();
+        // all buffers back in the pool - background writer is idle
+        Chunk[] all = new Chunk[buffers];
+        for (int i = 0; i < buffers; i++) {
+            all[i] = take(free);
+        }
+        try {
+            checkError();
+            out.flush();
+        } finally {
+            for (Chunk chunk : all) {
+                free.add(chunk);
+            }
+        }
+    }
+
+    /**
+     * Waits until all data is written and closes the target stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closing = true;
+        if (current != null && current.length > 0) {
+            filled.add(current);
+        }
+        current = null;
+        filled.add(END);
+        if (started.compareAndSet(false, true)) {
+            // the executor has not run the background writer (yet), so nothing would ever wait for END
+            drain();
+        }
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            if (stopped.getCount() == 0) {
+                closeTarget();
+            }
+            // otherwise the background writer closes the target once it stops
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for write-behind to finish");
+        }
+        // the background writer may have stopped before seeing END
+        closeTarget();
+        checkError();
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Chunk chunk;
+                try {
+                    chunk = filled.take();
+                } catch (InterruptedException e) {
+                    fail(e);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (chunk == END) {
+                    closeTarget();
+                    return;
+                }
+                if (error == null) {
+                    try {
+                        out.write(chunk.data, 0, chunk.length);
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }
+                // after a failure data is discarded, so that the producer is never blocked
+                chunk.length = 0;
+                free.add(chunk);
+            }
+        } finally {
+            // wakes up the producer if it waits for a buffer that will never come back
+            free.offer(END);
+            stopped.countDown();
+            if (closing) {
+                closeTarget();
+            }
+        }
+    }
+
+    private void closeTarget() {
+        if (targetClosed.compareAndSet(false, true)) {
+            try {
+                out.close();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (error == null) {
+            error = e;
+        }
+    }
+
+    private Chunk current() throws IOException {
+        if (current == null) {
+            current = take(free);
+        }
+        return current;
+    }
+
+    private void handOff() throws IOException {
+        if (current != null) {
+            Chunk chunk = current;
+            current = null;
+            if (chunk.length > 0) {
+                filled.add(chunk);
+            } else {
+                free.add(chunk);
+            }
+        }
+        checkError();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        checkError();
+    }
+
+    private void checkError() throws IOException {
+        Throwable e = error;
+        if (e != null) {
+            throw new IOException("Write-behind failed", e);
+        }
+    }
+
+    private Chunk take(BlockingQueue<Chunk> queue) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for a write-behind buffer");
+        }
+        if (chunk == END) {
+            queue.offer(END);
+            checkError();
+            throw new IOException("Write-behind stopped");
+        }
+        return chunk;
+    }
+
+    private static class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.rzymek.opczip;
+
+/**
+ * Receives {@link OpcOutputStream} events. All methods are no-ops by default.
+ * Nothing is measured while no listener is set.
+ *
+ * @see OpcOutputStream#setListener(WriteListener)
+ * @see MetricsCounters
+ */
+public interface WriteListener {
+
+    /**
+     * Called when an entry is closed.
+     * Deflate and write times are not measured for parallel deflated entries.
+     *
+     * @param size           uncompressed size
+     * @param compressedSize compressed size
+     * @param deflateNanos   time spent in {@link java.util.zip.Deflater#deflate}
+     * @param writeNanos     time spent writing entry data to the target stream
+     * @param crcNanos       time spent computing CRC-32
+     */
+    default void entryWritten(String name, long size, long compressedSize,
+                              long deflateNanos, long writeNanos, long crcNanos) {
+    }
+
+    /**
+     * Called when the archive is finished.
+     *
+     * @param entries number of entries
+     * @param bytes   total archive size
+     */
+    default void archiveFinished(long entries, long bytes) {
+    }
+}
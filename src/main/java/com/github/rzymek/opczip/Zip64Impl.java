@@ -2,6 +2,8 @@ package com.github.rzymek.opczip;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.zip.ZipEntry;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
@@ -11,25 +13,34 @@ class Zip64Impl {
     private static final long PK0304 = 0x04034b50L;
     private static final long PK0506 = 0x06054b50L;
     private static final long PK0708 = 0x08074b50L;
+    private static final long PK0606 = 0x06064b50L;
+    private static final long PK0607 = 0x07064b50L;
 
     private static final int VERSION_20 = 20;
     private static final int VERSION_45 = 45;
     private static final int DATA_DESCRIPTOR_USED = 0x08;
     private static final int ZIP64_FIELD = 0x0001;
     private static final long MAX32 = 0xffffffffL;
+    private static final int MAX16 = 0xffff;
+
+    private static final int CEN_SIZE = 46 + 2 + 2 + 3 * 8;       // CEN + ZIP64 extra field
+    private static final int END_SIZE = 56 + 20 + 22;              // ZIP64 EOCD + locator + EOCD
 
     private final OutputStream out;
-    private int written = 0;
+    private ByteBuffer buf = ByteBuffer.allocate(CEN_SIZE + 256).order(ByteOrder.LITTLE_ENDIAN);
 
     static class Entry {
         final String filename;
+        final byte[] filenameBytes;
+        int method = ZipEntry.DEFLATED;
         long crc;
         long size;
-        int compressedSize;
-        int offset;
+        long compressedSize;
+        long offset;
 
         Entry(String filename) {
             this.filename = filename;
+            this.filenameBytes = filename.getBytes(US_ASCII);
         }
     }
 
@@ -41,121 +52,178 @@ class Zip64Impl {
      * Write Local File Header
      */
     int writeLFH(Entry entry) throws IOException {
-        written = 0;
+        begin(entry.filenameBytes.length);
+        boolean stored = entry.method == ZipEntry.STORED;
+        boolean useZip64 = stored && entry.size >= MAX32;
         writeInt(PK0304);                        // "PK\003\004"
         writeShort(VERSION_45);                  // version required: 4.5
-        writeShort(DATA_DESCRIPTOR_USED);        // flags: 8 = data descriptor used
-        writeShort(ZipEntry.DEFLATED);           // compression method: 8 = deflate
+        writeShort(flags(entry));                // flags: 8 = data descriptor used
+        writeShort(entry.method);                // compression method: 8 = deflate, 0 = stored
         writeInt(0);                          // file modification time & date
         writeInt(entry.crc);                     // CRC-32
-        writeInt(0);                          // compressed file size
-        writeInt(0);                          // uncompressed file size
-        writeShort(entry.filename.length());     // filename length
-        writeShort(0);                        // extra flags size
-        byte[] filenameBytes = entry.filename.getBytes(US_ASCII);
-        out.write(filenameBytes);                // filename characters
-        return written + filenameBytes.length;
+        writeInt(!stored ? 0 : useZip64 ? MAX32 : entry.compressedSize); // compressed file size
+        writeInt(!stored ? 0 : useZip64 ? MAX32 : entry.size);           // uncompressed file size
+        writeShort(entry.filenameBytes.length);  // filename length
+        writeShort(useZip64
+                ? (2 + 2 + 8 + 8)  /* short + short + long + long */
+                : 0);                            // extra flags size
+        writeBytes(entry.filenameBytes);         // filename characters
+        if (useZip64) {
+            // Extra field:
+            writeShort(ZIP64_FIELD);             // ZIP64 field signature
+            writeShort(8 + 8);                   // size of extra field (below)
+            writeLong(entry.size);               // uncompressed size
+            writeLong(entry.compressedSize);     // compressed size
+        }
+        return flush();
     }
 
     /**
      * Write Data Descriptor
      */
     int writeDAT(Entry entry) throws IOException {
-        written = 0;
+        begin(0);
         writeInt(PK0708);                        // data descriptor signature "PK\007\008"
         writeInt(entry.crc);                     // crc-32
         writeLong(entry.compressedSize);         // compressed size (zip64)
         writeLong(entry.size);                   // uncompressed size (zip64)
-        return written;
+        return flush();
     }
 
     /**
-     * Write Central directory file header
+     * Write Central directory file header to {@code target}, central directory is collected separately
      */
-    int writeCEN(Entry entry) throws IOException {
-        written = 0;
-        boolean useZip64 = entry.size > MAX32;
+    int writeCEN(Entry entry, OutputStream target) throws IOException {
+        begin(entry.filenameBytes.length);
+        boolean zip64Size = entry.size >= MAX32;
+        boolean zip64CompressedSize = entry.compressedSize >= MAX32;
+        boolean zip64Offset = entry.offset >= MAX32;
+        boolean useZip64 = zip64Size || zip64CompressedSize || zip64Offset;
+        int extraLen = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
         writeInt(PK0102);                              // "PK\001\002"
         writeShort(VERSION_45);                        // version made by: 4.5
         writeShort(useZip64 ? VERSION_45 : VERSION_20);// version required: 4.5
-        writeShort(DATA_DESCRIPTOR_USED);              // flags: 8 = data descriptor used
-        writeShort(ZipEntry.DEFLATED);                 // compression method: 8 = deflate
+        writeShort(flags(entry));                      // flags: 8 = data descriptor used
+        writeShort(entry.method);                      // compression method: 8 = deflate, 0 = stored
         writeInt(0);                                // file modification time & date
         writeInt(entry.crc);                           // CRC-32
-        writeInt(entry.compressedSize);                // compressed size
-        writeInt(useZip64 ? MAX32 : entry.size); // uncompressed size
-        writeShort(entry.filename.length());           // filename length
+        writeInt(zip64CompressedSize ? MAX32 : entry.compressedSize); // compressed size
+        writeInt(zip64Size ? MAX32 : entry.size);      // uncompressed size
+        writeShort(entry.filenameBytes.length);        // filename length
         writeShort(useZip64
-                ? (2 + 2 + 8)  /* short + short + long*/
+                ? (2 + 2 + extraLen)  /* short + short + longs*/
                 : 0);                                  // extra field len
         writeShort(0);                              // comment length
         writeShort(0);                              // disk number where file starts
         writeShort(0);                              // internal file attributes (unused)
         writeInt(0);                                // external file attributes (unused)
-        writeInt(entry.offset);                        // LFH offset
-        byte[] filenameBytes = entry.filename.getBytes(US_ASCII);
-        out.write(filenameBytes);                      // filename characters
+        writeInt(zip64Offset ? MAX32 : entry.offset);  // LFH offset
+        writeBytes(entry.filenameBytes);               // filename characters
         if (useZip64) {
             // Extra field:
             writeShort(ZIP64_FIELD);                   // ZIP64 field signature
-            writeShort(8);                          // size of extra field (below)
-            writeLong(entry.size);                     // uncompressed size
+            writeShort(extraLen);                      // size of extra field (below)
+            if (zip64Size) {
+                writeLong(entry.size);                 // uncompressed size
+            }
+            if (zip64CompressedSize) {
+                writeLong(entry.compressedSize);       // compressed size
+            }
+            if (zip64Offset) {
+                writeLong(entry.offset);               // LFH offset
+            }
         }
-        return written + filenameBytes.length;
+        return flush(target);
     }
 
     /**
-     * Write End of central directory record (EOCD)
+     * Write End of central directory record (EOCD),
+     * preceded by ZIP64 EOCD record and locator if any of the values does not fit.
      */
-    int writeEND(int entriesCount, int offset, int length) throws IOException {
-        written = 0;
+    int writeEND(long entriesCount, long offset, long length) throws IOException {
+        begin(0);
+        if (entriesCount >= MAX16 || offset >= MAX32 || length >= MAX32) {
+            long zip64EndOffset = offset + length;
+            writeInt(PK0606);         // "PK\006\006"
+            writeLong(44);         // size of remaining ZIP64 EOCD record
+            writeShort(VERSION_45);   // version made by: 4.5
+            writeShort(VERSION_45);   // version required: 4.5
+            writeInt(0);           // number of this disk
+            writeInt(0);           // central directory start disk
+            writeLong(entriesCount);  // number of directory entries on disk
+            writeLong(entriesCount);  // total number of directory entries
+            writeLong(length);        // length of central directory
+            writeLong(offset);        // offset of central directory
+
+            writeInt(PK0607);         // "PK\006\007"
+            writeInt(0);           // disk with ZIP64 EOCD record
+            writeLong(zip64EndOffset);// offset of ZIP64 EOCD record
+            writeInt(1);           // total number of disks
+        }
         writeInt(PK0506);         // "PK\005\006"
         writeShort(0);         // number of this disk
         writeShort(0);         // central directory start disk
-        writeShort(entriesCount); // number of directory entries on disk
-        writeShort(entriesCount); // total number of directory entries
-        writeInt(length);         // length of central directory
-        writeInt(offset);         // offset of central directory
+        writeShort((int) Math.min(entriesCount, MAX16)); // number of directory entries on disk
+        writeShort((int) Math.min(entriesCount, MAX16)); // total number of directory entries
+        writeInt(Math.min(length, MAX32));  // length of central directory
+        writeInt(Math.min(offset, MAX32));  // offset of central directory
         writeShort(0);         // comment length
-        return written;
+        return flush();
+    }
+
+    private static int flags(Entry entry) {
+        return entry.method == ZipEntry.STORED ? 0 : DATA_DESCRIPTOR_USED;
     }
 
     /**
-     * Writes a 16-bit short to the output stream in little-endian byte order.
+     * Prepares scratch buffer for a new record with given variable length part.
      */
-    private void writeShort(int v) throws IOException {
-        OutputStream out = this.out;
-        out.write((v >>> 0) & 0xff);
-        out.write((v >>> 8) & 0xff);
-        written += 2;
+    private void begin(int variableLength) {
+        int required = Math.max(CEN_SIZE, END_SIZE) + variableLength;
+        if (buf.capacity() < required) {
+            buf = ByteBuffer.allocate(required).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buf.clear();
     }
 
     /**
-     * Writes a 32-bit int to the output stream in little-endian byte order.
+     * Writes the encoded record to the output stream (or {@code target}) in a single call.
+     *
+     * @return number of bytes written
      */
-    private void writeInt(long v) throws IOException {
-        OutputStream out = this.out;
-        out.write((int) ((v >>> 0) & 0xff));
-        out.write((int) ((v >>> 8) & 0xff));
-        out.write((int) ((v >>> 16) & 0xff));
-        out.write((int) ((v >>> 24) & 0xff));
-        written += 4;
+    private int flush() throws IOException {
+        return flush(out);
+    }
+
+    private int flush(OutputStream target) throws IOException {
+        int length = buf.position();
+        target.write(buf.array(), 0, length);
+        return length;
     }
 
     /**
-     * Writes a 64-bit int to the output stream in little-endian byte order.
+     * Encodes a 16-bit short in little-endian byte order.
      */
-    private void writeLong(long v) throws IOException {
-        OutputStream out = this.out;
-        out.write((int) ((v >>> 0) & 0xff));
-        out.write((int) ((v >>> 8) & 0xff));
-        out.write((int) ((v >>> 16) & 0xff));
-        out.write((int) ((v >>> 24) & 0xff));
-        out.write((int) ((v >>> 32) & 0xff));
-        out.write((int) ((v >>> 40) & 0xff));
-        out.write((int) ((v >>> 48) & 0xff));
-        out.write((int) ((v >>> 56) & 0xff));
-        written += 8;
+    private void writeShort(int v) {
+        buf.putShort((short) v);
+    }
+
+    /**
+     * Encodes a 32-bit int in little-endian byte order.
+     */
+    private void writeInt(long v) {
+        buf.putInt((int) v);
+    }
+
+    /**
+     * Encodes a 64-bit int in little-endian byte order.
+     */
+    private void writeLong(long v) {
+        buf.putLong(v);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        buf.put(bytes);
     }
 
 }
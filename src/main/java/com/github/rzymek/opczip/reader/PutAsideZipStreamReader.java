@@ -3,33 +3,62 @@ package com.github.rzymek.opczip.reader;
 import com.github.rzymek.opczip.reader.skipping.ZipStreamReader;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.AbstractMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.zip.InflaterInputStream;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
 
-import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
-
 public class PutAsideZipStreamReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 8192;
     private final ZipStreamReader in;
-    private Deque<Map.Entry<ZipEntry, byte[]>> saved = new ArrayDeque<>();
-    private byte[] currentRestored = null;
+    private final long memoryBudget;
+    private final Deque<PutAside> saved = new ArrayDeque<>();
+    private final Map<String, Deque<PutAside>> savedByName = new HashMap<>();
+    private PutAside currentRestored = null;
     private boolean finished = false;
     private ZipEntry entry;
+    private boolean consumed = true;
+    private long inMemory = 0;
+    private FileChannel spill;
+    private long spillSize = 0;
+    private ReadListener listener;
 
     public PutAsideZipStreamReader(InputStream in) {
+        this(in, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param memoryBudget max bytes of put aside entries kept in memory.
+     *                     Entries exceeding it are appended to a temporary spill file, deleted on {@link #close()}.
+     */
+    public PutAsideZipStreamReader(InputStream in, long memoryBudget) {
         this.in = new ZipStreamReader(in);
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @param listener notified about skipped, scanned and put aside entries, {@code null} for none
+     */
+    public void setListener(ReadListener listener) {
+        this.listener = listener;
+        in.setListener(listener);
     }
 
-    public InflaterInputStream getInputStream() {
+    public InputStream getInputStream() {
         if (currentRestored == null) {
+            consumed = true;
             return in.getUncompressedStream();
         } else {
-            return ZipStreamReader.uncompressed(new ByteArrayInputStream(currentRestored));
+            return currentRestored.uncompressed();
         }
     }
 
@@ -40,9 +69,14 @@ public class PutAsideZipStreamReader implements AutoCloseable {
                 this.currentRestored = null;
                 return null;
             } else {
-                Map.Entry<ZipEntry, byte[]> restored = saved.removeFirst();
-                this.currentRestored = restored.getValue();
-                return restored.getKey();
+                PutAside first = saved.pollFirst();
+                Deque<PutAside> sameName = savedByName.get(first.entry.getName());
+                sameName.pollFirst();
+                if (sameName.isEmpty()) {
+                    savedByName.remove(first.entry.getName());
+                }
+                this.currentRestored = release(first);
+                return currentRestored.entry;
             }
         } else {
             entry = in.nextEntry();
@@ -50,16 +84,115 @@ public class PutAsideZipStreamReader implements AutoCloseable {
                 finished = true;
                 return nextEntry();
             } else {
+                consumed = false;
                 return entry;
             }
         }
     }
 
+    /**
+     * @see #openEntry(String, Predicate)
+     */
+    public InputStream openEntry(String name) throws IOException {
+        return openEntry(name, entry -> true);
+    }
+
+    /**
+     * Opens entry by name right away: if it was put aside earlier, it is restored
+     * (the first one put aside, if there were several with the same name).
+     * Otherwise the stream is read forward until the entry is found.
+     * Entries passed on the way (including the current one, unless already read or skipped)
+     * are put aside if accepted by {@code putAside} filter, skipped otherwise.
+     *
+     * @return decompressed entry data or {@code null} if not found
+     */
+    public InputStream openEntry(String name, Predicate<ZipEntry> putAside) throws IOException {
+        Deque<PutAside> sameName = savedByName.get(name);
+        if (sameName != null) {
+            PutAside restored = sameName.pollFirst();
+            if (sameName.isEmpty()) {
+                savedByName.remove(name);
+            }
+            saved.remove(restored);
+            return release(restored).uncompressed();
+        }
+        while (!finished) {
+            if (consumed) {
+                entry = in.nextEntry();
+                if (entry == null) {
+                    finished = true;
+                    break;
+                }
+                consumed = false;
+            }
+            if (entry.getName().equals(name)) {
+                return getInputStream();
+            }
+            if (putAside.test(entry)) {
+                putAsideForLater();
+            } else {
+                skipEntry();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entry is leaving the put aside store, its in-memory data no longer counts towards the budget.
+     */
+    private PutAside release(PutAside restored) {
+        if (restored.data != null) {
+            inMemory -= restored.data.length;
+        }
+        return restored;
+    }
+
     public void putAsideForLater() throws IOException {
-        saved.addLast(new AbstractMap.SimpleEntry<>(entry, readAllBytes(in.getCompressedStream())));
+        consumed = true;
+        InputStream compressed = in.getCompressedStream();
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        byte[] buf = new byte[BUFFER_SIZE];
+        for (int n; (n = compressed.read(buf)) >= 0; ) {
+            if (inMemory + memory.size() + n > memoryBudget) {
+                putAside(spill(memory, buf, n, compressed));
+                return;
+            }
+            memory.write(buf, 0, n);
+        }
+        byte[] data = memory.toByteArray();
+        inMemory += data.length;
+        putAside(new PutAside(entry, data, 0, data.length));
+    }
+
+    private void putAside(PutAside putAside) {
+        saved.addLast(putAside);
+        savedByName.computeIfAbsent(putAside.entry.getName(), name -> new ArrayDeque<>()).addLast(putAside);
+        if (listener != null) {
+            listener.entryPutAside(putAside.entry.getName(), putAside.length, putAside.data == null);
+        }
+    }
+
+    private PutAside spill(ByteArrayOutputStream memory, byte[] buf, int n, InputStream rest) throws IOException {
+        if (spill == null) {
+            spill = FileChannel.open(Files.createTempFile("opczip", ".spill"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        long offset = spillSize;
+        append(ByteBuffer.wrap(memory.toByteArray()));
+        do {
+            append(ByteBuffer.wrap(buf, 0, n));
+        } while ((n = rest.read(buf)) >= 0);
+        return new PutAside(entry, null, offset, spillSize - offset);
+    }
+
+    private void append(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            spillSize += spill.write(data, spillSize);
+        }
     }
 
     public void skipEntry() throws IOException {
+        consumed = true;
         if (!finished) {
             in.skipStream();
         }
@@ -67,6 +200,37 @@ public class PutAsideZipStreamReader implements AutoCloseable {
 
     @Override
     public void close() throws IOException {
-        in.close();
+        try {
+            in.close();
+        } finally {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
+
+    /**
+     * Compressed entry data kept either in memory or at {@code offset} of the spill file.
+     */
+    private class PutAside {
+        final ZipEntry entry;
+        final byte[] data;
+        final long offset;
+        final long length;
+
+        PutAside(ZipEntry entry, byte[] data, long offset, long length) {
+            this.entry = entry;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        InputStream open() {
+            return data != null ? new ByteArrayInputStream(data) : ZipStreamReader.region(spill, offset, length);
+        }
+
+        InputStream uncompressed() {
+            return entry.getMethod() == ZipEntry.STORED ? open() : ZipStreamReader.uncompressed(open());
+        }
     }
 }
@@ -0,0 +1,31 @@
+package com.github.rzymek.opczip.reader;
+
+/**
+ * Receives {@link com.github.rzymek.opczip.reader.skipping.ZipStreamReader} and {@link PutAsideZipStreamReader}
+ * events. All methods are no-ops by default.
+ * Entry names are valid only during the call.
+ *
+ * @see com.github.rzymek.opczip.MetricsCounters
+ */
+public interface ReadListener {
+
+    /**
+     * Entry data was skipped without being read, as its size was known.
+     */
+    default void entrySkipped(CharSequence name, long bytes) {
+    }
+
+    /**
+     * Entry data of unknown size was read looking for the end of entry.
+     */
+    default void entryScanned(CharSequence name, long bytes) {
+    }
+
+    /**
+     * Compressed entry data was put aside for later.
+     *
+     * @param spilled whether it went to the spill file instead of memory
+     */
+    default void entryPutAside(CharSequence name, long bytes, boolean spilled) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static com.github.rzymek.opczip.reader.skipping.ExactIO.readExactly;
+import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
+
+/**
+ * Central directory parsed into parallel primitive arrays, indexed by entry name.
+ */
+class CentralDirectory {
+    final int count;
+    final String[] names;
+    final int[] flags;
+    final int[] methods;
+    final long[] crcs;
+    final long[] compressedSizes;
+    final long[] sizes;
+    final long[] offsets;
+    /**
+     * Offset of the first CEN header, i.e. end of the last entry data.
+     */
+    final long offset;
+    private final Map<String, Integer> index;
+
+    private CentralDirectory(int count, long offset) {
+        this.count = count;
+        this.offset = offset;
+        this.names = new String[count];
+        this.flags = new int[count];
+        this.methods = new int[count];
+        this.crcs = new long[count];
+        this.compressedSizes = new long[count];
+        this.sizes = new long[count];
+        this.offsets = new long[count];
+        this.index = new HashMap<>(count * 4 / 3 + 1);
+    }
+
+    /**
+     * Locates END (or ZIP64 END) record at the end of the channel and reads the central directory.
+     */
+    static CentralDirectory read(SeekableByteChannel channel) throws IOException {
+        long fileSize = channel.size();
+        int tailLen = (int) Math.min(fileSize, END_MAXLEN);
+        long tailPos = fileSize - tailLen;
+        byte[] tail = new byte[tailLen];
+        readExactly(channel, tailPos, tail, 0, tailLen);
+        int end = tailLen - END_SIZE;
+        while (end >= 0 && !(get32(tail, end) == END_SIG && end + END_SIZE + get16(tail, end + END_SIZE - 2) <= tailLen)) {
+            end--;
+        }
+        if (end < 0) {
+            throw new ZipException("END header not found");
+        }
+        long total = get16(tail, end + END_TOT);
+        long cenSize = get32(tail, end + END_SIZ);
+        long cenOffset = get32(tail, end + END_OFF);
+        long endPos = tailPos + end;
+        if (endPos >= ZIP64_LOC_SIZE) {
+            byte[] loc = new byte[ZIP64_LOC_SIZE];
+            readExactly(channel, endPos - ZIP64_LOC_SIZE, loc, 0, ZIP64_LOC_SIZE);
+            if (get32(loc, 0) == ZIP64_LOC_SIG) {
+                byte[] zip64End = new byte[ZIP64_END_SIZE];
+                readExactly(channel, get64(loc, ZIP64_LOC_OFF), zip64End, 0, ZIP64_END_SIZE);
+                if (get32(zip64End, 0) != ZIP64_END_SIG) {
+                    throw new ZipException("invalid ZIP64 END header");
+                }
+                total = get64(zip64End, ZIP64_END_TOT);
+                cenSize = get64(zip64End, ZIP64_END_SIZ);
+                cenOffset = get64(zip64End, ZIP64_END_OFF);
+            }
+        }
+        if (total > Integer.MAX_VALUE || cenSize > Integer.MAX_VALUE) {
+            throw new ZipException("central directory too large: " + total + " entries, " + cenSize + " bytes");
+        }
+        byte[] cen = new byte[(int) cenSize];
+        readExactly(channel, cenOffset, cen, 0, cen.length);
+        CentralDirectory directory = new CentralDirectory((int) total, cenOffset);
+        int pos = 0;
+        for (int i = 0; i < total; i++) {
+            if (pos + CEN_SIZE > cen.length || get32(cen, pos) != CEN_SIG) {
+                throw new ZipException("invalid CEN header (bad signature) of entry " + i);
+            }
+            pos = directory.parse(i, cen, pos);
+        }
+        return directory;
+    }
+
+    private int parse(int i, byte[] cen, int pos) throws ZipException {
+        int nameLen = get16(cen, pos + CEN_NAM);
+        int extLen = get16(cen, pos + CEN_EXT);
+        int comLen = get16(cen, pos + CEN_COM);
+        if (pos + CEN_SIZE + nameLen + extLen + comLen > cen.length) {
+            throw new ZipException("invalid CEN header (bad header size) of entry " + i);
+        }
+        flags[i] = get16(cen, pos + CEN_FLG);
+        methods[i] = get16(cen, pos + CEN_HOW);
+        crcs[i] = get32(cen, pos + CEN_CRC);
+        compressedSizes[i] = get32(cen, pos + CEN_SIZ);
+        sizes[i] = get32(cen, pos + CEN_LEN);
+        offsets[i] = get32(cen, pos + CEN_OFF);
+        int namePos = pos + CEN_SIZE;
+        names[i] = new String(cen, namePos, nameLen,
+                (flags[i] & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+        readZip64Extra(i, cen, namePos + nameLen, extLen);
+        index.put(names[i], i);
+        return namePos + nameLen + extLen + comLen;
+    }
+
+    private void readZip64Extra(int i, byte[] cen, int pos, int len) {
+        int end = pos + len;
+        while (pos + 4 <= end) {
+            int id = get16(cen, pos);
+            int size = get16(cen, pos + 2);
+            pos += 4;
+            if (id == ZIP64_EXTRA) {
+                int fieldEnd = Math.min(pos + size, end);
+                if (sizes[i] == ZIP64_MAGICVAL && pos + 8 <= fieldEnd) {
+                    sizes[i] = get64(cen, pos);
+                    pos += 8;
+                }
+                if (compressedSizes[i] == ZIP64_MAGICVAL && pos + 8 <= fieldEnd) {
+                    compressedSizes[i] = get64(cen, pos);
+                    pos += 8;
+                }
+                if (offsets[i] == ZIP64_MAGICVAL && pos + 8 <= fieldEnd) {
+                    offsets[i] = get64(cen, pos);
+                }
+                return;
+            }
+            pos += size;
+        }
+    }
+
+    /**
+     * @return entry index or -1 if not found
+     */
+    int indexOf(String name) {
+        Integer i = index.get(name);
+        return i == null ? -1 : i;
+    }
+
+    ZipEntry toZipEntry(int i) {
+        ZipEntry entry = new ZipEntry(names[i]);
+        if (methods[i] == ZipEntry.STORED || methods[i] == ZipEntry.DEFLATED) {
+            entry.setMethod(methods[i]);
+        }
+        entry.setCrc(crcs[i]);
+        entry.setCompressedSize(compressedSizes[i]);
+        entry.setSize(sizes[i]);
+        return entry;
+    }
+}
@@ -1,27 +1,58 @@
 package com.github.rzymek.opczip.reader.skipping;
 
+import com.github.rzymek.opczip.reader.ReadListener;
+
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.PushbackInputStream;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
+import static com.github.rzymek.opczip.reader.skipping.SignatureScanner.isHeader;
 import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
 
 class CompressedEntryInputStream extends FilterInputStream {
-    private final SignatureMatcher cen = new SignatureMatcher(CEN);
-    private final SignatureMatcher lfh = new SignatureMatcher(LFH);
-    private final SignatureMatcher dat = new SignatureMatcher(DAT);
+    /**
+     * Lookahead buffer used when compressed size is unknown.
+     * Must not exceed the pushback capacity of the underlying stream.
+     */
+    static final int BUFFER_SIZE = 4096;
+    private static final int INVALID = -1;
+    private static final int NEED_MORE_DATA = -2;
 
-    private final ZipEntry entry;
+    private final long compressedSize;
+    private final long crc;
+    private final boolean stored;
     private final boolean expectingDatSig;
+    private final CharSequence name;
+    private final ReadListener listener;
     private boolean endOfEntry = false;
-    int count = 0;
+    long count = 0;
     CRC32 crc32 = new CRC32();
 
-    public CompressedEntryInputStream(PushbackInputStream in, ZipEntry entry, boolean expectingDatSig) {
+    private byte[] buffer;
+    private int pos = 0;        // next byte to return
+    private int safe = 0;       // [pos, safe) is entry data
+    private int limit = 0;      // [safe, limit) is signature or bytes that may start one
+    private int checked = 0;    // crc32 covers entry data up to this index
+    private boolean signatureFound = false;
+    private int descriptorLength = 0;
+    private boolean sourceEof = false;
+
+    /**
+     * @param compressedSize compressed size, 0 if unknown
+     * @param crc            crc-32 to verify, 0 if unknown
+     * @param stored         whether entry data is not compressed, i.e. crc-32 applies to the bytes read
+     * @param listener       notified about bytes scanned to find the end of entry, may be {@code null}
+     */
+    public CompressedEntryInputStream(PushbackInputStream in, long compressedSize, long crc, boolean stored,
+                                      boolean expectingDatSig, CharSequence name, ReadListener listener) {
         super(in);
-        this.entry = entry;
+        this.name = name;
+        this.listener = listener;
+        this.compressedSize = compressedSize;
+        this.crc = crc;
+        this.stored = stored;
         this.expectingDatSig = expectingDatSig;
     }
 
@@ -29,7 +60,7 @@ class CompressedEntryInputStream extends FilterInputStream {
     public int read() throws IOException {
         byte[] b = new byte[1];
         int read = read(b, 0, 1);
-        return read == 1 ? b[0] : read;
+        return read == 1 ? b[0] & 0xff : read;
     }
 
     @Override
@@ -37,50 +68,184 @@ class CompressedEntryInputStream extends FilterInputStream {
         if (endOfEntry) {
             return -1;
         }
-        if (entry.getCompressedSize() > 0) {
-            long leftToRead = entry.getCompressedSize() - count;
+        if (compressedSize > 0) {
+            long leftToRead = compressedSize - count;
             if(leftToRead <= 0){
                 return -1;
             }
             int readCount = super.read(buf, off, (int) Math.min(len, leftToRead));
             if (readCount > 0) {
                 count += readCount;
-                crc(buf, off, readCount);
+                crc32.update(buf, off, readCount);
             }
             return readCount;
         } else {
-            int readCount = super.read(buf, off, len);
-            crc(buf, off, readCount);
-            for (int i = 0; i < len; i++) {
-                byte currentByte = buf[off + i];
-                if (expectingDatSig && dat.matchNext(currentByte)) {
-                    eof(buf, off, len, i - DAT.length() + 1);
-                    ExactIO.skipExactly(in, DAT_SIZE);
-                    return i - DAT.length() + 1;
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == safe) {
+                if (signatureFound) {
+                    eof();
+                    return -1;
                 }
-                if (lfh.matchNext(currentByte) || cen.matchNext(currentByte)) {
-                    eof(buf, off, len, i - LFH.length() + 1);
-                    return i - LFH.length() + 1;
+                if (sourceEof) {
+                    return -1;
                 }
+                fill();
             }
+            int readCount = Math.min(len, safe - pos);
+            System.arraycopy(buffer, pos, buf, off, readCount);
+            pos += readCount;
+            count += readCount;
             return readCount;
         }
     }
 
-    private void crc(byte[] buf, int off, int readCount) {
-        if (entry.getCrc() > 0) {
-            crc32.update(buf, off, readCount);
+    /**
+     * Reads more data into lookahead buffer and classifies it.
+     */
+    private void fill() throws IOException {
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        int pending = limit - pos;
+        System.arraycopy(buffer, pos, buffer, 0, pending);
+        pos = 0;
+        safe = 0;
+        checked = 0;
+        limit = pending;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            sourceEof = true;
+        } else {
+            limit += read;
+        }
+        for (int from = 0; ; ) {
+            int candidate = SignatureScanner.indexOf(buffer, from, limit, expectingDatSig);
+            if (candidate < 0) {
+                // incomplete signature at the end of input is just data
+                safe = sourceEof ? limit : holdBack(limit - SignatureScanner.partialSuffix(buffer, from, limit, expectingDatSig));
+                checksum(safe);
+                return;
+            }
+            int validated = validate(candidate);
+            if (validated == NEED_MORE_DATA) {
+                safe = holdBack(candidate);
+                checksum(safe);
+                return;
+            }
+            if (validated != INVALID) {
+                // unsigned descriptor precedes the header found
+                boolean unsigned = validated == DAT_UNSIGNED_SIZE || validated == DAT64_UNSIGNED_SIZE;
+                safe = unsigned ? candidate - validated : candidate;
+                checksum(safe);
+                signatureFound = true;
+                descriptorLength = validated;
+                return;
+            }
+            from = candidate + 1;
+        }
+    }
+
+    /**
+     * Signature bytes can naturally occur in compressed data, e.g. in an embedded archive stored as is.
+     * Checks if a candidate really ends the entry: if a data descriptor is expected, only the descriptor does -
+     * it has to hold compressed size of bytes read so far (and their CRC-32 for stored entries) and be followed by a header.
+     * The descriptor signature is optional, so a header right after an unsigned descriptor ends the entry as well.
+     * Otherwise LFH and CEN headers have to look sane.
+     *
+     * @return length of data descriptor to skip (0 for LFH and CEN), {@link #INVALID} or {@link #NEED_MORE_DATA}
+     */
+    private int validate(int candidate) {
+        byte kind = buffer[candidate + 2];
+        if (expectingDatSig) {
+            if (kind != DAT.at(2)) {
+                return unsignedDescriptor(candidate);
+            }
+            if (!sourceEof && candidate + DAT64_SIZE + LFH.length() > limit) {
+                return NEED_MORE_DATA;
+            }
+            long readSize = count + candidate; // buffer starts right after the bytes already returned
+            int length;
+            if (isDescriptor(candidate, DAT_SIZE) && get32(buffer, candidate + DAT_SIZ) == (readSize & 0xffffffffL)) {
+                length = DAT_SIZE;
+            } else if (isDescriptor(candidate, DAT64_SIZE) && get64(buffer, candidate + DAT_SIZ) == readSize) {
+                length = DAT64_SIZE;
+            } else {
+                return INVALID;
+            }
+            return crcMatches(candidate, candidate + DAT_CRC) ? length : INVALID;
+        }
+        boolean lfh = kind == LFH.at(2);
+        if (candidate + (lfh ? LFH_SIZE : CEN_SIZE) > limit) {
+            return sourceEof ? INVALID : NEED_MORE_DATA;
+        }
+        int method = get16(buffer, candidate + (lfh ? LFH_HOW : CEN_HOW));
+        int nameLen = get16(buffer, candidate + (lfh ? LFH_NAM : CEN_NAM));
+        return (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) && nameLen > 0 ? 0 : INVALID;
+    }
+
+    /**
+     * @return length of the unsigned descriptor ending right before {@code header} or {@link #INVALID}
+     */
+    private int unsignedDescriptor(int header) {
+        // data before checked was either returned already or passed to crc32
+        int start = header - DAT_UNSIGNED_SIZE;
+        if (start >= checked && get32(buffer, start + DAT_SIZ - DAT_CRC) == ((count + start) & 0xffffffffL)
+                && crcMatches(start, start)) {
+            return DAT_UNSIGNED_SIZE;
+        }
+        start = header - DAT64_UNSIGNED_SIZE;
+        if (start >= checked && get64(buffer, start + DAT_SIZ - DAT_CRC) == count + start
+                && crcMatches(start, start)) {
+            return DAT64_UNSIGNED_SIZE;
+        }
+        return INVALID;
+    }
+
+    /**
+     * @return whether CRC-32 at {@code crcOffset} matches entry data up to {@code end}, always true for compressed entries
+     */
+    private boolean crcMatches(int end, int crcOffset) {
+        if (!stored) {
+            return true;
         }
+        checksum(end);
+        return get32(buffer, crcOffset) == crc32.getValue();
+    }
+
+    /**
+     * Keeps bytes that may turn out to be an unsigned descriptor in the lookahead buffer.
+     */
+    private int holdBack(int index) {
+        return expectingDatSig ? Math.max(0, index - DAT64_UNSIGNED_SIZE) : index;
+    }
+
+    private boolean isDescriptor(int candidate, int length) {
+        int next = candidate + length;
+        if (next + LFH.length() <= limit) {
+            return isHeader(buffer, next);
+        }
+        return sourceEof && next == limit;
+    }
+
+    /**
+     * Extends crc32 over entry data up to {@code index} of the lookahead buffer.
+     */
+    private void checksum(int index) {
+        crc32.update(buffer, checked, index - checked);
+        checked = index;
     }
 
-    private void eof(byte[] buf, int off, int len, int i) throws IOException {
-        ((PushbackInputStream) in).unread(buf, off + i, len - i);
+    private void eof() throws IOException {
+        ((PushbackInputStream) in).unread(buffer, safe, limit - safe);
         endOfEntry = true;
-        if (entry.getCrc() != -1 && crc32.getValue() != entry.getCrc()) {
-            throw new IOException("CRC32: Expecting " + entry.getCrc() + ". Got: " + crc32.getValue());
+        ExactIO.skipExactly(in, descriptorLength);
+        if (listener != null) {
+            listener.entryScanned(name, count);
         }
-        if (entry.getCompressedSize() != -1 && count != entry.getCompressedSize()) {
-            throw new IOException("Expecting compressed size " + entry.getCompressedSize() + ". Got: " + count);
+        if (stored && crc > 0 && crc32.getValue() != crc) {
+            throw new IOException("CRC32: Expecting " + crc + ". Got: " + crc32.getValue());
         }
     }
 
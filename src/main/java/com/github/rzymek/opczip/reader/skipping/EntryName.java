@@ -0,0 +1,42 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable {@link CharSequence} view over raw (ASCII) entry name bytes.
+ * Valid only until the next entry is read. Non-ASCII bytes are seen as the replacement character, as in US-ASCII decoded names.
+ */
+class EntryName implements CharSequence {
+    byte[] bytes = new byte[256];
+    int length;
+
+    void ensureCapacity(int length) {
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        byte b = bytes[index];
+        return b >= 0 ? (char) b : '\uFFFD';
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+}
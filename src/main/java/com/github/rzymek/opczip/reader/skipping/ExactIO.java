@@ -1,7 +1,11 @@
 package com.github.rzymek.opczip.reader.skipping;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 
 class ExactIO {
     static int readExactly(InputStream in, byte[] buf, int offset, int len) throws IOException {
@@ -25,4 +29,27 @@ class ExactIO {
         }
     }
 
+    /**
+     * Reads exactly {@code len} bytes at given position.
+     * Positional read for {@link FileChannel}, otherwise the channel position is moved.
+     */
+    static void readExactly(SeekableByteChannel channel, long position, byte[] buf, int off, int len) throws IOException {
+        ByteBuffer dst = ByteBuffer.wrap(buf, off, len);
+        if (channel instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) channel;
+            while (dst.hasRemaining()) {
+                if (fileChannel.read(dst, position + dst.position() - off) < 0) {
+                    throw new EOFException("unexpected EOF at " + (position + dst.position() - off));
+                }
+            }
+        } else {
+            channel.position(position);
+            while (dst.hasRemaining()) {
+                if (channel.read(dst) < 0) {
+                    throw new EOFException("unexpected EOF at " + channel.position());
+                }
+            }
+        }
+    }
+
 }
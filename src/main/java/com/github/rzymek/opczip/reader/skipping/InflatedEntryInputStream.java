@@ -0,0 +1,101 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
+
+/**
+ * Inflates a deflated entry straight from the shared stream.
+ * The inflater knows where the deflate stream ends, so no signature scanning is needed:
+ * unused input is pushed back and the data descriptor (if any) is consumed.
+ */
+class InflatedEntryInputStream extends InflaterInputStream {
+    /**
+     * Must not exceed the pushback capacity of the underlying stream.
+     */
+    static final int BUFFER_SIZE = 4096;
+
+    private final ZipEntry entry;
+    private final boolean expectingDat;
+    private final CRC32 crc32 = new CRC32();
+    private boolean endOfEntry = false;
+
+    InflatedEntryInputStream(PushbackInputStream in, ZipEntry entry, boolean expectingDat) {
+        super(in, new Inflater(true), BUFFER_SIZE);
+        this.entry = entry;
+        this.expectingDat = expectingDat;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (endOfEntry) {
+            return -1;
+        }
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            crc32.update(b, off, read);
+        } else if (read < 0) {
+            eof();
+        }
+        return read;
+    }
+
+    private void eof() throws IOException {
+        endOfEntry = true;
+        PushbackInputStream pushback = (PushbackInputStream) in;
+        int remaining = inf.getRemaining();
+        if (remaining > 0) {
+            pushback.unread(buf, len - remaining, remaining);
+        }
+        long compressedSize = inf.getBytesRead();
+        long size = inf.getBytesWritten();
+        inf.end();
+        long crc = expectingDat ? readDescriptor(pushback, compressedSize, size) : entry.getCrc();
+        if (crc != crc32.getValue()) {
+            throw new ZipException("CRC32: Expecting " + crc + ". Got: " + crc32.getValue());
+        }
+        entry.setCrc(crc);
+        entry.setSize(size);
+        entry.setCompressedSize(compressedSize);
+    }
+
+    /**
+     * Reads data descriptor with optional signature and 32 or 64 bit sizes, telling them apart by the actual sizes.
+     *
+     * @return crc-32 from the descriptor
+     */
+    private static long readDescriptor(PushbackInputStream in, long compressedSize, long size) throws IOException {
+        byte[] dat = new byte[DAT64_SIZE];
+        int read = ExactIO.readExactly(in, dat, 0, dat.length);
+        int start = DAT.matchesStartOf(dat) ? DAT.length() : 0;
+        int length;
+        if (start + DAT64_SIZE - DAT.length() <= read
+                && get64(dat, start + 4) == compressedSize && get64(dat, start + 12) == size) {
+            length = start + DAT64_SIZE - DAT.length();
+        } else if (start + DAT_SIZE - DAT.length() <= read
+                && get32(dat, start + 4) == (compressedSize & 0xffffffffL) && get32(dat, start + 8) == (size & 0xffffffffL)) {
+            length = start + DAT_SIZE - DAT.length();
+        } else {
+            throw new ZipException("Invalid data descriptor: " + Signature.toString(dat, read));
+        }
+        in.unread(dat, length, read - length);
+        return get32(dat, start);
+    }
+
+    /**
+     * Releases the inflater, leaves the shared stream open.
+     */
+    @Override
+    public void close() {
+        if (!endOfEntry) {
+            endOfEntry = true;
+            inf.end();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static com.github.rzymek.opczip.reader.skipping.ExactIO.readExactly;
+import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
+
+/**
+ * Random access ZIP file reader.
+ * Central directory is read once into a compact index, any entry is then opened with positional
+ * {@link FileChannel} reads, without scanning the preceding entries.
+ * Streams of different entries can be read concurrently.
+ */
+public class OpcZipFile implements AutoCloseable {
+    private final FileChannel channel;
+    private final CentralDirectory directory;
+
+    public OpcZipFile(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * @param channel channel to read from. Closed by {@link #close()}.
+     */
+    public OpcZipFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        try {
+            this.directory = CentralDirectory.read(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return directory.count;
+    }
+
+    /**
+     * @return entries in central directory order
+     */
+    public List<ZipEntry> entries() {
+        List<ZipEntry> entries = new ArrayList<>(directory.count);
+        for (int i = 0; i < directory.count; i++) {
+            entries.add(directory.toZipEntry(i));
+        }
+        return entries;
+    }
+
+    /**
+     * @return entry or {@code null} if not found
+     */
+    public ZipEntry getEntry(String name) {
+        int i = directory.indexOf(name);
+        return i < 0 ? null : directory.toZipEntry(i);
+    }
+
+    /**
+     * @return decompressed entry data or {@code null} if not found
+     */
+    public InputStream getInputStream(String name) throws IOException {
+        int i = directory.indexOf(name);
+        return i < 0 ? null : uncompressed(i);
+    }
+
+    /**
+     * @return raw (compressed) entry data or {@code null} if not found
+     */
+    public InputStream getCompressedStream(String name) throws IOException {
+        int i = directory.indexOf(name);
+        return i < 0 ? null : compressed(i);
+    }
+
+    /**
+     * Decompresses all entries concurrently, each on a task run by {@code executor}.
+     * Entries are read with positional reads of the shared channel and pooled inflaters, one per running task.
+     * Returns when all entries are consumed.
+     *
+     * @param consumer called concurrently for each entry with its decompressed data
+     * @throws IOException first failure of reading or of the consumer
+     * @throws RejectedExecutionException if {@code executor} rejects a task, once the tasks submitted before are done
+     */
+    public void forEachEntryParallel(Executor executor, EntryConsumer consumer) throws IOException {
+        Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[directory.count];
+        int submitted = 0;
+        try {
+            for (; submitted < directory.count; submitted++) {
+                final int entry = submitted;
+                tasks[submitted] = CompletableFuture.runAsync(() -> {
+                    Inflater inflater = inflaters.poll();
+                    if (inflater == null) {
+                        inflater = new Inflater(true);
+                    }
+                    try (InputStream in = uncompressed(entry, inflater)) {
+                        consumer.accept(directory.toZipEntry(entry), in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        inflater.reset();
+                        inflaters.add(inflater);
+                    }
+                }, executor);
+            }
+        } catch (RejectedExecutionException e) {
+            // tasks already submitted still use the pooled inflaters
+            try {
+                CompletableFuture.allOf(Arrays.copyOf(tasks, submitted)).handle((result, failure) -> null).join();
+            } finally {
+                inflaters.forEach(Inflater::end);
+            }
+            throw e;
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Parallel inflate failed", e.getCause());
+        } finally {
+            inflaters.forEach(Inflater::end);
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(ZipEntry entry, InputStream uncompressed) throws IOException;
+    }
+
+    InputStream uncompressed(int i) throws IOException {
+        return uncompressed(i, null);
+    }
+
+    /**
+     * @param inflater inflater to use (not ended after use), {@code null} to create one
+     */
+    private InputStream uncompressed(int i, Inflater inflater) throws IOException {
+        InputStream compressed = compressed(i);
+        switch (directory.methods[i]) {
+            case ZipEntry.STORED:
+                return compressed;
+            case ZipEntry.DEFLATED:
+                return inflater == null
+                        ? new ReadFullyInflaterInputStream(compressed)
+                        : new ReadFullyInflaterInputStream(compressed, inflater);
+            default:
+                throw new ZipException("unsupported compression method " + directory.methods[i]
+                        + " of " + directory.names[i]);
+        }
+    }
+
+    InputStream compressed(int i) throws IOException {
+        byte[] lfh = new byte[LFH_SIZE];
+        long offset = directory.offsets[i];
+        readExactly(channel, offset, lfh, 0, LFH_SIZE);
+        if (!LFH.matchesStartOf(lfh)) {
+            throw new ZipException("invalid LFH header of " + directory.names[i] + " at " + offset);
+        }
+        long dataOffset = offset + LFH_SIZE + get16(lfh, LFH_NAM) + get16(lfh, LFH_EXT);
+        return new ChannelInputStream(channel, dataOffset, directory.compressedSizes[i]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
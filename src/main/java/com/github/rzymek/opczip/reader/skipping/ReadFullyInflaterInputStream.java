@@ -11,7 +11,14 @@ import java.util.zip.InflaterInputStream;
 class ReadFullyInflaterInputStream extends InflaterInputStream {
 
     public ReadFullyInflaterInputStream(InputStream compressedStream) {
-        super(new PushbackInputStream(compressedStream, 512), new Inflater(true));
+        this(compressedStream, new Inflater(true));
+    }
+
+    /**
+     * @param inflater raw (nowrap) inflater, not ended on close
+     */
+    public ReadFullyInflaterInputStream(InputStream compressedStream, Inflater inflater) {
+        super(new PushbackInputStream(compressedStream, 512), inflater);
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Pushback stream over a {@link SeekableByteChannel} that can jump to any position.
+ */
+class SeekableInputStream extends PushbackInputStream {
+    private final SeekableByteChannel channel;
+
+    SeekableInputStream(SeekableByteChannel channel, int size) {
+        super(Channels.newInputStream(channel), size);
+        this.channel = channel;
+    }
+
+    /**
+     * Moves to given position, dropping any pushed back bytes.
+     */
+    void seek(long position) throws IOException {
+        channel.position(position);
+        pos = buf.length;
+    }
+}
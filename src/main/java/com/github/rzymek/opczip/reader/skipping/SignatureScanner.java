@@ -0,0 +1,90 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Bulk search for LFH, CEN and data descriptor signatures ({@code PK\3\4}, {@code PK\1\2}, {@code PK\7\8}).
+ * Looks for {@code 'P'} eight bytes at a time (SWAR), the following bytes are compared only for candidates.
+ */
+class SignatureScanner {
+    private static final long ALL_P = 0x5050505050505050L;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * @param dat whether to look for data descriptor signature as well
+     * @return index of the first complete signature within {@code [from, to)}, or -1
+     */
+    static int indexOf(byte[] buf, int from, int to, boolean dat) {
+        int i = from;
+        if (to - from >= Long.BYTES) {
+            ByteBuffer words = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+            for (; i + Long.BYTES <= to; i += Long.BYTES) {
+                long x = words.getLong(i) ^ ALL_P;
+                // high bit set for each zero byte, i.e. each 'P' (may report false positives after a real one)
+                long candidates = (x - LOW_BITS) & ~x & HIGH_BITS;
+                while (candidates != 0) {
+                    int candidate = i + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                    if (candidate + 4 <= to && isSignature(buf, candidate, dat)) {
+                        return candidate;
+                    }
+                    candidates &= candidates - 1;
+                }
+            }
+        }
+        for (; i + 4 <= to; i++) {
+            if (isSignature(buf, i, dat)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return length (0-3) of the longest suffix of {@code [from, to)} that is a prefix of a signature,
+     * i.e. number of bytes that can not be classified before more data is read
+     */
+    static int partialSuffix(byte[] buf, int from, int to, boolean dat) {
+        for (int len = Math.min(3, to - from); len > 0; len--) {
+            if (isPrefix(buf, to - len, len, dat)) {
+                return len;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return whether LFH or CEN signature starts at {@code i}
+     */
+    static boolean isHeader(byte[] buf, int i) {
+        return buf[i] == 'P' && buf[i + 1] == 'K'
+                && ((buf[i + 2] == 3 && buf[i + 3] == 4) || (buf[i + 2] == 1 && buf[i + 3] == 2));
+    }
+
+    private static boolean isSignature(byte[] buf, int i, boolean dat) {
+        if (buf[i] != 'P' || buf[i + 1] != 'K') {
+            return false;
+        }
+        byte b2 = buf[i + 2];
+        byte b3 = buf[i + 3];
+        return (b2 == 3 && b3 == 4) || (b2 == 1 && b3 == 2) || (dat && b2 == 7 && b3 == 8);
+    }
+
+    private static boolean isPrefix(byte[] buf, int i, int len, boolean dat) {
+        if (buf[i] != 'P') {
+            return false;
+        }
+        if (len == 1) {
+            return true;
+        }
+        if (buf[i + 1] != 'K') {
+            return false;
+        }
+        if (len == 2) {
+            return true;
+        }
+        byte b2 = buf[i + 2];
+        return b2 == 3 || b2 == 1 || (dat && b2 == 7);
+    }
+}
@@ -13,7 +13,12 @@ class ZipReadSpec {
 
     final static int DATA_DESCRIPTOR_USED = 0x08;
     final static int LFH_SIZE = 30;       // LOC header size
-    final static int DAT_SIZE = 16;       // LOC header size
+    final static int DAT_SIZE = 16;       // data descriptor size
+    final static int DAT64_SIZE = 24;     // ZIP64 data descriptor size
+    final static int DAT_UNSIGNED_SIZE = 12;   // data descriptor size without signature
+    final static int DAT64_UNSIGNED_SIZE = 20; // ZIP64 data descriptor size without signature
+    final static int DAT_CRC = 4;         // uncompressed file crc-32 value
+    final static int DAT_SIZ = 8;         // compressed size
     final static int LFH_VER = 4;        // version needed to extract
     final static int LFH_FLG = 6;        // general purpose bit flag
     final static int LFH_HOW = 8;        // compression method
@@ -24,6 +29,39 @@ class ZipReadSpec {
     final static int LFH_NAM = 26;       // filename length
     final static int LFH_EXT = 28;       // extra field length
 
+    final static long CEN_SIG = 0x02014b50L;
+    final static int CEN_SIZE = 46;       // central directory header size
+    final static int CEN_FLG = 8;        // general purpose bit flag
+    final static int CEN_HOW = 10;       // compression method
+    final static int CEN_CRC = 16;       // uncompressed file crc-32 value
+    final static int CEN_SIZ = 20;       // compressed size
+    final static int CEN_LEN = 24;       // uncompressed size
+    final static int CEN_NAM = 28;       // filename length
+    final static int CEN_EXT = 30;       // extra field length
+    final static int CEN_COM = 32;       // file comment length
+    final static int CEN_OFF = 42;       // LOC header offset
+
+    final static long END_SIG = 0x06054b50L;
+    final static int END_SIZE = 22;       // END header size
+    final static int END_TOT = 10;       // total number of entries
+    final static int END_SIZ = 12;       // central directory size in bytes
+    final static int END_OFF = 16;       // offset of first CEN header
+    final static int END_MAXLEN = 0xffff + END_SIZE;
+
+    final static long ZIP64_LOC_SIG = 0x07064b50L;
+    final static int ZIP64_LOC_SIZE = 20; // ZIP64 end locator size
+    final static int ZIP64_LOC_OFF = 8;   // offset of ZIP64 END record
+
+    final static long ZIP64_END_SIG = 0x06064b50L;
+    final static int ZIP64_END_SIZE = 56; // ZIP64 END record size
+    final static int ZIP64_END_TOT = 32;  // total number of entries
+    final static int ZIP64_END_SIZ = 40;  // central directory size in bytes
+    final static int ZIP64_END_OFF = 48;  // offset of first CEN header
+
+    final static int ZIP64_EXTRA = 0x0001;
+    final static long ZIP64_MAGICVAL = 0xffffffffL;
+    final static int UTF8_FLAG = 0x800;
+
     /**
      * Fetches unsigned 16-bit value from byte array at specified offset.
      * The bytes are assumed to be in Intel (little-endian) byte order.
@@ -40,13 +78,19 @@ class ZipReadSpec {
         return (get16(b, off) | ((long) get16(b, off + 2) << 16)) & 0xffffffffL;
     }
 
-    static byte[] readNBytes(InputStream in, int len) throws IOException {
-        byte[] buf = new byte[len];
+    /**
+     * Fetches signed 64-bit value from byte array at specified offset.
+     * The bytes are assumed to be in Intel (little-endian) byte order.
+     */
+    static long get64(byte[] b, int off) {
+        return get32(b, off) | (get32(b, off + 4) << 32);
+    }
+
+    static void readNBytes(InputStream in, byte[] buf, int len) throws IOException {
         int read = ExactIO.readExactly(in, buf, 0, len);
         if (read != len) {
             throw new IOException(format("unexpected EOF. %s != %s", read, len));
         }
-        return buf;
     }
 
 }
@@ -1,9 +1,17 @@
 package com.github.rzymek.opczip.reader.skipping;
 
+import com.github.rzymek.opczip.Glob;
+import com.github.rzymek.opczip.reader.ReadListener;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 
@@ -12,27 +20,132 @@ import static com.github.rzymek.opczip.reader.skipping.ExactIO.skipExactly;
 import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
 
 public class ZipStreamReader implements AutoCloseable {
+    private static final int PUSHBACK_SIZE = 8192;
     private final PushbackInputStream in;
+    private final byte[] lfh = new byte[LFH_SIZE];
+    private final EntryName name = new EntryName();
     private int flag;
+    private int method;
+    private long compressedSize;
+    private long size;
+    private long crc;
     private boolean reachedCEN = false;
     protected ZipEntry currentEntry;
 
+    /**
+     * Seekable source only: central directory, entry indexes ordered by LFH offset
+     * and LFH offsets in that order followed by the central directory offset.
+     */
+    private final CentralDirectory directory;
+    private final Integer[] order;
+    private final long[] lfhOffsets;
+    private int next = 0;
+    private ReadListener listener;
+
     public ZipStreamReader(InputStream in) {
-        this.in = new PushbackInputStream(in, 8192);
+        this.in = new PushbackInputStream(in, PUSHBACK_SIZE);
+        this.directory = null;
+        this.order = null;
+        this.lfhOffsets = null;
+    }
+
+    /**
+     * Reads the central directory once up front, so sizes are always known
+     * and {@link #skipStream()} is a position jump instead of reading through the data.
+     *
+     * @param channel channel to read from. Closed by {@link #close()}.
+     */
+    public ZipStreamReader(SeekableByteChannel channel) throws IOException {
+        this.in = new SeekableInputStream(channel, PUSHBACK_SIZE);
+        try {
+            this.directory = CentralDirectory.read(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.order = new Integer[directory.count];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> directory.offsets[i]));
+        this.lfhOffsets = new long[order.length + 1];
+        for (int i = 0; i < order.length; i++) {
+            lfhOffsets[i] = directory.offsets[order[i]];
+        }
+        lfhOffsets[order.length] = directory.offset;
+    }
+
+    /**
+     * @param listener notified about skipped and scanned entries, {@code null} for none
+     */
+    public void setListener(ReadListener listener) {
+        this.listener = listener;
     }
 
     public static InflaterInputStream uncompressed(InputStream compressedStream) {
         return new ReadFullyInflaterInputStream(compressedStream);
     }
 
+    /**
+     * @return {@code length} bytes of {@code channel} starting at {@code position}, read with positional reads
+     * that do not modify the channel position
+     */
+    public static InputStream region(FileChannel channel, long position, long length) {
+        return new ChannelInputStream(channel, position, length);
+    }
+
     public ZipEntry nextEntry() throws IOException {
+        return nextEntry(name -> true);
+    }
+
+    /**
+     * Skips entries not accepted by {@code filter} inside the reader, without creating {@link ZipEntry} or name
+     * {@link String} for them. The name passed to the filter is a view valid only during the call.
+     *
+     * @return next entry accepted by the filter or {@code null} at the end of entries
+     * @see #glob(String)
+     */
+    public ZipEntry nextEntry(Predicate<CharSequence> filter) throws IOException {
+        while (readHeader()) {
+            if (filter.test(name)) {
+                currentEntry = new ZipEntry(name.toString());
+                if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+                    currentEntry.setMethod(method);
+                }
+                currentEntry.setCompressedSize(compressedSize);
+                currentEntry.setSize(size);
+                currentEntry.setCrc(crc);
+                return currentEntry;
+            }
+            skipStream();
+        }
+        return null;
+    }
+
+    /**
+     * @return filter for {@link #nextEntry(Predicate)} matching entry names against a glob pattern:
+     * {@code *} (any characters except {@code /}), {@code **} (any characters), {@code ?} and {@code {a,b}}
+     */
+    public static Predicate<CharSequence> glob(String glob) {
+        Matcher matcher = Glob.compile(glob).matcher("");
+        return name -> matcher.reset(name).matches();
+    }
+
+    private boolean readHeader() throws IOException {
         if (reachedCEN) {
-            return null;
+            return false;
         }
-        byte[] lfh = readNBytes(in, LFH_SIZE);
+        if (directory != null) {
+            if (next == directory.count) {
+                reachedCEN = true;
+                return false;
+            }
+            ((SeekableInputStream) in).seek(lfhOffsets[next]);
+        }
+        readNBytes(in, lfh, LFH_SIZE);
         if (CEN.matchesStartOf(lfh)) {
             reachedCEN = true;
-            return null;
+            return false;
         }
         if (!LFH.matchesStartOf(lfh)) {
             String msg = "Expecting LFH bytes (" + LFH + "). " +
@@ -40,32 +153,61 @@ public class ZipStreamReader implements AutoCloseable {
             throw new IOException(msg);
         }
         flag = get16(lfh, LFH_FLG);
-        final int nameLen = get16(lfh, LFH_NAM);
-        byte[] filename = readNBytes(in, nameLen);
-
-        currentEntry = new ZipEntry(new String(filename, StandardCharsets.US_ASCII));
-        long csize = get32(lfh, LFH_SIZ);
-        currentEntry.setCompressedSize(csize);
-        long size = get32(lfh, LFH_LEN);
-        currentEntry.setSize(size);
-        currentEntry.setCrc(get32(lfh, LFH_CRC));
+        method = get16(lfh, LFH_HOW);
+        name.length = get16(lfh, LFH_NAM);
+        name.ensureCapacity(name.length);
+        readNBytes(in, name.bytes, name.length);
+        compressedSize = get32(lfh, LFH_SIZ);
+        size = get32(lfh, LFH_LEN);
+        crc = get32(lfh, LFH_CRC);
+
+        if (directory != null) {
+            int i = order[next++];
+            compressedSize = directory.compressedSizes[i];
+            size = directory.sizes[i];
+            crc = directory.crcs[i];
+        }
 
         int extLen = get16(lfh, LFH_EXT);
         skipExactly(in, extLen);
-
-        return currentEntry;
+        return true;
     }
 
     public void skipStream() throws IOException {
-        long compressedSize = currentEntry.getCompressedSize();
+        if (directory != null) {
+            ((SeekableInputStream) in).seek(lfhOffsets[next]);
+            skipped();
+            return;
+        }
         if (compressedSize > 0) {
             skipExactly(in, compressedSize + (expectingDatSig() ? DAT_SIZE : 0));
+            skipped();
         } else {
             discardAllBytes(getCompressedStream());
         }
     }
 
-    public InflaterInputStream getUncompressedStream() {
+    private void skipped() {
+        if (listener != null) {
+            listener.entrySkipped(name, compressedSize);
+        }
+    }
+
+    /**
+     * Deflated entries are inflated directly from the underlying stream - the inflater detects the end of entry.
+     * Entry's crc and sizes are updated once the stream is read to the end.
+     * Stored entries are returned as is.
+     */
+    public InputStream getUncompressedStream() {
+        if (reachedCEN) {
+            return null;
+        }
+        if (method == ZipEntry.DEFLATED) {
+            return new InflatedEntryInputStream(in, currentEntry, expectingDatSig());
+        }
+        if (method == ZipEntry.STORED) {
+            return getCompressedStream();
+        }
         return uncompressed(getCompressedStream());
     }
 
@@ -73,7 +215,8 @@ public class ZipStreamReader implements AutoCloseable {
         if (reachedCEN) {
             return null;
         }
-        return new CompressedEntryInputStream(in, currentEntry, expectingDatSig());
+        return new CompressedEntryInputStream(in, compressedSize, crc, method == ZipEntry.STORED, expectingDatSig(),
+                name, listener);
     }
 
     private boolean expectingDatSig() {
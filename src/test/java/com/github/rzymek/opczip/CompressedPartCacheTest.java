@@ -0,0 +1,110 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.reader.skipping.ZipStreamReader;
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static com.github.rzymek.opczip.utils.ZipAssertions.assertContents;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedPartCacheTest {
+    private static final byte[] STYLES = "<styleSheet><fonts count=\"1\"><font/></fonts></styleSheet>".getBytes(US_ASCII);
+    private static final byte[] THEME = "<a:theme name=\"Office Theme\"><a:themeElements/></a:theme>".getBytes(US_ASCII);
+
+    @Test
+    void shouldReuseDeflatedParts() throws IOException {
+        CompressedPartCache cache = new CompressedPartCache(1024 * 1024, 16 * 1024);
+        byte[] sheet = SpreadsheetML.sheet(200_000, 0);
+        byte[] first = workbook(cache, sheet);
+        byte[] second = workbook(cache, sheet);
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.size());
+        assertArrayEquals(first, second);
+        try (TempZip temp = new TempZip("cache")) {
+            try (FileOutputStream out = new FileOutputStream(temp.file)) {
+                out.write(second);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertContents(zipFile, "xl/styles.xml", STYLES);
+                assertContents(zipFile, "xl/theme/theme1.xml", THEME);
+                assertContents(zipFile, "xl/worksheets/sheet1.xml", sheet);
+            }
+        }
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(second))) {
+            assertEquals("xl/styles.xml", reader.nextEntry().getName());
+            assertArrayEquals(STYLES, readAllBytes(reader.getUncompressedStream()));
+        }
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() throws IOException {
+        CompressedPartCache cache = new CompressedPartCache(50, 1024);
+        try (OpcOutputStream zip = new OpcOutputStream(new ByteArrayOutputStream())) {
+            zip.setCompressedPartCache(cache);
+            for (int i = 0; i < 10; i++) {
+                zip.putNextEntry(new ZipEntry("part" + i + ".xml"));
+                zip.write(("<part" + i + "/>").getBytes(US_ASCII));
+            }
+        }
+        assertTrue(cache.getBytes() <= 50);
+        assertTrue(cache.size() < 10);
+    }
+
+    @Test
+    void shouldWritePrecompressedEntry() throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(STYLES);
+        deflater.finish();
+        byte[] buf = new byte[1024];
+        int length = deflater.deflate(buf);
+        deflater.end();
+        byte[] deflated = new byte[length];
+        System.arraycopy(buf, 0, deflated, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(STYLES);
+
+        try (TempZip temp = new TempZip("precompressed")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+                zip.write(STYLES);
+                zip.writePrecompressedEntry("xl/styles.xml", deflated, crc.getValue(), STYLES.length);
+                zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+                zip.write(STYLES);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertContents(zipFile, "[Content_Types].xml", STYLES);
+                assertContents(zipFile, "xl/styles.xml", STYLES);
+                assertContents(zipFile, "xl/workbook.xml", STYLES);
+            }
+        }
+    }
+
+    private static byte[] workbook(CompressedPartCache cache, byte[] sheet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            zip.setCompressedPartCache(cache);
+            zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+            zip.write(STYLES);
+            zip.putNextEntry(new ZipEntry("xl/theme/theme1.xml"));
+            zip.write(THEME, 0, 10);
+            zip.write(THEME, 10, THEME.length - 10);
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(sheet);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static com.github.rzymek.opczip.utils.ZipAssertions.assertContents;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionPolicyTest {
+
+    @Test
+    void shouldMatchGlobs() {
+        assertTrue(Glob.compile("xl/worksheets/*.xml").matcher("xl/worksheets/sheet1.xml").matches());
+        assertFalse(Glob.compile("xl/worksheets/*.xml").matcher("xl/worksheets/_rels/sheet1.xml.rels").matches());
+        assertTrue(Glob.compile("**.{png,jpg}").matcher("xl/media/image1.jpg").matches());
+        assertFalse(Glob.compile("**.{png,jpg}").matcher("xl/media/image1.jpeg").matches());
+    }
+
+    @Test
+    void shouldChooseMethodPerEntry() throws IOException {
+        byte[] random = new byte[64 * 1024];
+        new Random(0).nextBytes(random);
+        byte[] small = Arrays.copyOf(random, 1000);
+        byte[] xml = new byte[64 * 1024];
+        Arrays.fill(xml, (byte) 'x');
+
+        try (TempZip temp = new TempZip("policy")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setCompressionPolicy(AdaptiveCompressionPolicy.forSpreadsheets());
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+                zip.write(xml);
+                zip.putNextEntry(new ZipEntry("xl/media/image1.png"));
+                zip.write(small);
+                zip.putNextEntry(new ZipEntry("xl/embeddings/data.bin"));
+                zip.write(random);
+                zip.putNextEntry(new ZipEntry("xl/embeddings/small.bin"));
+                zip.write(small);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertEntry(zipFile, "xl/worksheets/sheet1.xml", ZipEntry.DEFLATED, xml);
+                assertTrue(zipFile.getEntry("xl/worksheets/sheet1.xml").getCompressedSize() < 1000);
+                assertEntry(zipFile, "xl/media/image1.png", ZipEntry.STORED, small);
+                // larger than sample, so deflated without compression
+                assertEntry(zipFile, "xl/embeddings/data.bin", ZipEntry.DEFLATED, random);
+                assertEntry(zipFile, "xl/embeddings/small.bin", ZipEntry.STORED, small);
+            }
+        }
+    }
+
+    @Test
+    void shouldChangeLevelPerEntryInParallelMode() throws IOException {
+        byte[] png = new byte[70_000];
+        new Random(0).nextBytes(png);
+        StringBuilder sheet = new StringBuilder();
+        for (int row = 1; sheet.length() < 70_000; row++) {
+            sheet.append("<row r=\"").append(row).append("\"><c><v>").append(row * 31 % 1000).append("</v></c></row>");
+        }
+        byte[] xml = sheet.toString().getBytes(US_ASCII);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (TempZip temp = new TempZip("policyParallel")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setCompressionPolicy(AdaptiveCompressionPolicy.forSpreadsheets());
+                zip.setParallelDeflate(executor, 16 * 1024);
+                zip.putNextEntry(new ZipEntry("xl/media/image1.png"));
+                zip.write(png);
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+                zip.write(xml);
+                zip.putNextEntry(new ZipEntry("xl/media/image2.png"));
+                zip.write(png);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertContents(zipFile, "xl/media/image1.png", png);
+                assertContents(zipFile, "xl/worksheets/sheet1.xml", xml);
+                assertContents(zipFile, "xl/media/image2.png", png);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldSampleEntriesKeptForCache() throws IOException {
+        byte[] random = new byte[4096];
+        new Random(0).nextBytes(random);
+        byte[] xml = new byte[4096];
+        Arrays.fill(xml, (byte) 'x');
+
+        try (TempZip temp = new TempZip("policyCache")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setCompressionPolicy(AdaptiveCompressionPolicy.forSpreadsheets());
+                zip.setCompressedPartCache(new CompressedPartCache(1024 * 1024, 64 * 1024));
+                zip.putNextEntry(new ZipEntry("xl/embeddings/blob.bin"));
+                zip.write(random);
+                zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+                zip.write(xml);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertEntry(zipFile, "xl/embeddings/blob.bin", ZipEntry.STORED, random);
+                assertEntry(zipFile, "xl/styles.xml", ZipEntry.DEFLATED, xml);
+            }
+        }
+    }
+
+    private static void assertEntry(ZipFile zipFile, String name, int method, byte[] expected) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertEquals(method, entry.getMethod(), name);
+        assertArrayEquals(expected, readAllBytes(zipFile.getInputStream(entry)), name);
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.rzymek.opczip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeflaterPoolTest {
+
+    @Test
+    void shouldApplyLevelOfBorrowedDeflater() {
+        StringBuilder sheet = new StringBuilder();
+        for (int row = 1; sheet.length() < 30_000; row++) {
+            sheet.append("<row r=\"").append(row).append("\"><c><v>").append(row * 31 % 1000).append("</v></c></row>");
+        }
+        byte[] data = sheet.toString().getBytes(US_ASCII);
+        try (DeflaterPool pool = new DeflaterPool(1)) {
+            Deflater first = pool.borrow(Deflater.NO_COMPRESSION);
+            syncFlush(first, data);
+            pool.release(first);
+
+            Deflater reused = pool.borrow(Deflater.BEST_COMPRESSION);
+            assertSame(first, reused);
+            Deflater fresh = new Deflater(Deflater.BEST_COMPRESSION, true);
+            assertArrayEquals(syncFlush(fresh, data), syncFlush(reused, data));
+            fresh.end();
+            pool.release(reused);
+        }
+    }
+
+    @Test
+    void shouldNotBorrowForInvalidBufferSize() {
+        try (DeflaterPool pool = new DeflaterPool(1)) {
+            Deflater deflater = pool.borrow(Deflater.DEFAULT_COMPRESSION);
+            pool.release(deflater);
+            assertThrows(IllegalArgumentException.class, () -> new OpcOutputStream(new ByteArrayOutputStream(), 0, pool));
+            assertSame(deflater, pool.borrow(Deflater.DEFAULT_COMPRESSION));
+        }
+    }
+
+    /**
+     * Single deflate call, as a caller not prepared for a pending level change would do.
+     */
+    private static byte[] syncFlush(Deflater deflater, byte[] data) {
+        deflater.setInput(data);
+        byte[] buf = new byte[2 * data.length];
+        int n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+        assertTrue(deflater.needsInput());
+        return Arrays.copyOf(buf, n);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.reader.PutAsideZipStreamReader;
+import com.github.rzymek.opczip.reader.skipping.ZipStreamReader;
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsCountersTest {
+
+    @Test
+    void shouldCountWriterAndReaderEvents() throws IOException {
+        MetricsCounters metrics = new MetricsCounters();
+        byte[] sheet = SpreadsheetML.sheet(4 * 1024 * 1024, 0);
+        try (TempZip temp = new TempZip("metrics")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setListener(metrics);
+                for (String name : new String[]{"sheet1.xml", "sheet2.xml", "sheet3.xml"}) {
+                    zip.putNextEntry(new ZipEntry(name));
+                    zip.write(sheet);
+                }
+                zip.writeStoredEntry("stored.bin", new byte[]{1, 2, 3});
+            }
+            assertEquals(4, metrics.getEntriesWritten());
+            assertEquals(3L * sheet.length + 3, metrics.getUncompressedBytes());
+            assertTrue(metrics.getCompressionRatio() > 0 && metrics.getCompressionRatio() < 1);
+            assertTrue(metrics.getDeflateNanos() > 0);
+            assertTrue(metrics.getCrcNanos() > 0);
+
+            try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new FileInputStream(temp.file))) {
+                reader.setListener(metrics);
+                reader.nextEntry();
+                reader.putAsideForLater();
+                reader.nextEntry();
+                reader.skipEntry();
+            }
+            assertTrue(metrics.getPutAsideBytes() > 0);
+            assertTrue(metrics.getScannedBytes() > 0);
+            assertEquals(0, metrics.getSkippedBytes());
+
+            try (ZipStreamReader reader = new ZipStreamReader(FileChannel.open(temp.file.toPath()))) {
+                reader.setListener(metrics);
+                reader.nextEntry();
+                reader.skipStream();
+            }
+            assertTrue(metrics.getSkippedBytes() > 0);
+        }
+    }
+}
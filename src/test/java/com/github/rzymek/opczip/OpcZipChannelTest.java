@@ -0,0 +1,59 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpcZipChannelTest {
+
+    @Test
+    void shouldApplyBackpressureAndProduceReadableArchive() throws IOException {
+        byte[] random = new byte[300_000];
+        new Random(0).nextBytes(random);
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        int refused = 0;
+        try (TempZip temp = new TempZip("channel")) {
+            try (OpcZipChannel zip = new OpcZipChannel(16 * 1024);
+                 FileOutputStream out = new FileOutputStream(temp.file)) {
+                zip.putNextEntry(new ZipEntry("random.bin"));
+                ByteBuffer data = ByteBuffer.wrap(random);
+                while (data.hasRemaining()) {
+                    ByteBuffer slice = data.duplicate();
+                    slice.limit(Math.min(slice.position() + 1000, slice.limit()));
+                    if (zip.offer(slice)) {
+                        data.position(slice.position());
+                    } else {
+                        refused++;
+                        drain(zip, chunk, out);
+                    }
+                }
+                zip.closeEntry();
+                zip.finish();
+                int read;
+                do {
+                    read = drain(zip, chunk, out);
+                } while (read >= 0);
+            }
+            assertTrue(refused > 0);
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertArrayEquals(random, readAllBytes(zipFile.getInputStream(zipFile.getEntry("random.bin"))));
+            }
+        }
+    }
+
+    private static int drain(OpcZipChannel zip, ByteBuffer chunk, FileOutputStream out) throws IOException {
+        chunk.clear();
+        int n = zip.read(chunk);
+        out.write(chunk.array(), 0, chunk.position());
+        return n;
+    }
+}
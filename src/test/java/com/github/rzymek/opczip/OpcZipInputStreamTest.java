@@ -0,0 +1,48 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static com.github.rzymek.opczip.reader.InputStreamUtils.transferTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OpcZipInputStreamTest {
+
+    @Test
+    void shouldProduceArchiveWhileBeingRead() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        byte[] random = new byte[100_000];
+        new Random(0).nextBytes(random);
+        entries.put("random.bin", random);
+        entries.put("empty.txt", new byte[0]);
+        byte[] text = new byte[50_000];
+        Arrays.fill(text, (byte) 'x');
+        entries.put("text.txt", text);
+
+        try (TempZip temp = new TempZip("inputStream")) {
+            try (OpcZipInputStream in = new OpcZipInputStream(entries.keySet().iterator(),
+                    name -> new ByteArrayInputStream(entries.get(name)));
+                 FileOutputStream out = new FileOutputStream(temp.file)) {
+                out.write(in.read());
+                transferTo(in, out);
+            }
+            try (ZipFile zip = new ZipFile(temp.file)) {
+                assertEquals(entries.size(), zip.size());
+                for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                    assertArrayEquals(entry.getValue(), readAllBytes(zip.getInputStream(zip.getEntry(entry.getKey()))));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.utils.ZipAssertions.assertContents;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelDeflaterTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void start() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdown();
+    }
+
+    @Test
+    void crc32Combine() {
+        byte[] data = SpreadsheetML.sheet(400_000, 0);
+        int split = 3_333;
+        CRC32 first = new CRC32();
+        first.update(data, 0, split);
+        CRC32 second = new CRC32();
+        second.update(data, split, data.length - split);
+        CRC32 whole = new CRC32();
+        whole.update(data);
+        assertEquals(whole.getValue(), ParallelDeflater.crc32Combine(first.getValue(), second.getValue(), data.length - split));
+    }
+
+    @Test
+    void shouldProduceReadableEntries() throws IOException {
+        byte[] sheet = SpreadsheetML.sheet(8 * 1024 * 1024, 0);
+        byte[] random = new byte[100_000];
+        new Random(0).nextBytes(random);
+        try (TempZip temp = new TempZip("parallel")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setLevel(Deflater.BEST_SPEED);
+                zip.setParallelDeflate(executor, 16 * 1024);
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+                zip.write(sheet);
+                zip.putNextEntry(new ZipEntry("empty.txt"));
+                zip.putNextEntry(new ZipEntry("random.bin"));
+                zip.write(random);
+                zip.closeEntry();
+                zip.setParallelDeflate(null, 0);
+                zip.putNextEntry(new ZipEntry("sequential.xml"));
+                zip.write(sheet);
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertContents(zipFile, "xl/worksheets/sheet1.xml", sheet);
+                assertContents(zipFile, "empty.txt", new byte[0]);
+                assertContents(zipFile, "random.bin", random);
+                assertContents(zipFile, "sequential.xml", sheet);
+            }
+        }
+    }
+
+    @Test
+    void shouldChangeLevelBetweenEntries() throws IOException {
+        byte[] sheet = SpreadsheetML.sheet(30_000, 0);
+        int[] levels = {Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, Deflater.BEST_SPEED, Deflater.NO_COMPRESSION};
+        try (TempZip temp = new TempZip("parallelLevels")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setParallelDeflate(executor, 8 * 1024);
+                for (int i = 0; i < levels.length; i++) {
+                    zip.setLevel(levels[i]);
+                    zip.putNextEntry(new ZipEntry("entry" + i + ".xml"));
+                    zip.write(sheet);
+                }
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                for (int i = 0; i < levels.length; i++) {
+                    assertContents(zipFile, "entry" + i + ".xml", sheet);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.utils.ZipAssertions.assertContents;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelinedCrcTest {
+
+    @Test
+    void shouldComputeCrcOfLargeWritesOnExecutor() throws IOException {
+        byte[] sheet = SpreadsheetML.sheet(1024 * 1024, 0);
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            new Thread(task).start();
+        };
+        try (TempZip temp = new TempZip("pipelinedCrc")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(temp.file))) {
+                zip.setPipelinedCrc(executor);
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+                zip.write(sheet);
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet2.xml"));
+                zip.write(sheet, 0, 1000);
+                zip.write(sheet, 1000, sheet.length - 1000);
+                zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+                zip.write(sheet, 0, 1000);
+            }
+            assertEquals(2, tasks.get());
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                assertContents(zipFile, "xl/worksheets/sheet1.xml", sheet);
+                assertContents(zipFile, "xl/worksheets/sheet2.xml", sheet);
+                byte[] styles = new byte[1000];
+                System.arraycopy(sheet, 0, styles, 0, styles.length);
+                assertContents(zipFile, "xl/styles.xml", styles);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.utils.ZipAssertions.assertContents;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindOutputStreamTest {
+
+    @Test
+    void shouldProduceReadableArchive() throws IOException {
+        byte[] sheet = SpreadsheetML.sheet(2 * 1024 * 1024, 0);
+        try (TempZip temp = new TempZip("writeBehind")) {
+            try (OpcOutputStream zip = new OpcOutputStream(new WriteBehindOutputStream(new FileOutputStream(temp.file)))) {
+                for (int i = 1; i <= 3; i++) {
+                    zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + i + ".xml"));
+                    zip.write(sheet);
+                    zip.closeEntry();
+                }
+            }
+            try (ZipFile zipFile = new ZipFile(temp.file)) {
+                for (int i = 1; i <= 3; i++) {
+                    assertContents(zipFile, "xl/worksheets/sheet" + i + ".xml", sheet);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldRethrowTargetFailureOnNextCall() throws IOException {
+        IOException failure = new IOException("disk full");
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw failure;
+            }
+        };
+        OpcOutputStream zip = new OpcOutputStream(new WriteBehindOutputStream(failing));
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        zip.write(SpreadsheetML.sheet(40_000, 0));
+        IOException thrown = assertThrows(IOException.class, zip::finish);
+        assertSame(failure, thrown.getCause());
+        assertThrows(IOException.class, zip::close);
+    }
+
+    @Test
+    void shouldWriteOnCloseIfWriterWasNotStarted() throws IOException {
+        byte[] data = SpreadsheetML.sheet(10_000, 0);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        WriteBehindOutputStream out = new WriteBehindOutputStream(target, task -> {
+        }, 1024, 16);
+        out.write(data);
+        out.close();
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    void shouldLeaveClosingToWriterWhenInterrupted() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountDownLatch targetClosed = new CountDownLatch(1);
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            @Override
+            public void close() {
+                assertEquals(0, proceed.getCount(), "closed while writing");
+                targetClosed.countDown();
+            }
+        };
+        WriteBehindOutputStream out = new WriteBehindOutputStream(slow, task -> new Thread(task).start(), 100, 4);
+        out.write(new byte[100]);
+        writing.await();
+        out.write(new byte[100]);
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedIOException.class, out::close);
+        assertTrue(Thread.interrupted());
+        proceed.countDown();
+        assertTrue(targetClosed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldFailWritesOnceWriterIsInterrupted() throws Exception {
+        Thread[] writer = new Thread[1];
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        WriteBehindOutputStream out = new WriteBehindOutputStream(target, task -> {
+            writer[0] = new Thread(task);
+            writer[0].start();
+        }, 16, 2);
+        writer[0].interrupt();
+        writer[0].join();
+        IOException thrown = assertThrows(IOException.class, () -> out.write(new byte[100]));
+        assertTrue(thrown.getCause() instanceof InterruptedException);
+        assertThrows(IOException.class, out::close);
+    }
+}
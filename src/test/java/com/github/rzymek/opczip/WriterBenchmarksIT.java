@@ -0,0 +1,178 @@
+package com.github.rzymek.opczip;
+
+import com.github.rzymek.opczip.base.BenchmarkBase;
+import com.github.rzymek.opczip.base.ZipImpl;
+import com.github.rzymek.opczip.implementations.CommonsCompress;
+import com.github.rzymek.opczip.implementations.JdkZip;
+import com.github.rzymek.opczip.implementations.OpcZip;
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writer performance on realistic, compressible SpreadsheetML content.
+ * Archives are written to a counting sink, so only compression and ZIP encoding are measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmarksIT extends BenchmarkBase {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Workbook {
+        @Param({"opc", "jdk", "commons"})
+        String impl;
+        @Param({"1", "8"})
+        int entries;
+        @Param({"65536", "4194304"})
+        int entrySize;
+        @Param({"1", "6"})
+        int level;
+
+        byte[][] sheets;
+
+        @Setup
+        public void setup() {
+            sheets = new byte[entries][];
+            for (int i = 0; i < entries; i++) {
+                sheets[i] = SpreadsheetML.sheet(entrySize, i);
+            }
+        }
+    }
+
+    /**
+     * Many tiny entries: dominated by header and central directory encoding.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallEntries {
+        @Param({"opc", "jdk", "commons"})
+        String impl;
+        @Param({"10000"})
+        int count;
+
+        byte[] data;
+
+        @Setup
+        public void setup() {
+            data = SpreadsheetML.sheet(256, 0);
+        }
+    }
+
+    /**
+     * Whole sheets written in a single call, CRC-32 computed inline or on a helper thread while deflating.
+     */
+    @State(Scope.Benchmark)
+    public static class LargeWrites {
+        @Param({"inline", "pipelined"})
+        String crc;
+        @Param({"4194304"})
+        int entrySize;
+
+        byte[] sheet;
+        ExecutorService executor;
+
+        @Setup
+        public void setup() {
+            sheet = SpreadsheetML.sheet(entrySize, 0);
+            executor = Executors.newSingleThreadExecutor();
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long workbook(Workbook workbook) throws Exception {
+        CountingSink sink = new CountingSink();
+        try (ZipImpl zip = implementation(workbook.impl).apply(sink)) {
+            zip.setLevel(workbook.level);
+            for (int i = 0; i < workbook.sheets.length; i++) {
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (i + 1) + ".xml"));
+                byte[] sheet = workbook.sheets[i];
+                for (int off = 0; off < sheet.length; off += CHUNK_SIZE) {
+                    zip.write(sheet, off, Math.min(CHUNK_SIZE, sheet.length - off));
+                }
+                zip.closeEntry();
+            }
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long smallEntries(SmallEntries small) throws Exception {
+        CountingSink sink = new CountingSink();
+        try (ZipImpl zip = implementation(small.impl).apply(sink)) {
+            for (int i = 0; i < small.count; i++) {
+                zip.putNextEntry(new ZipEntry("xl/media/part" + i + ".xml"));
+                zip.write(small.data, 0, small.data.length);
+                zip.closeEntry();
+            }
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long largeWrites(LargeWrites large) throws IOException {
+        CountingSink sink = new CountingSink();
+        try (OpcOutputStream zip = new OpcOutputStream(sink)) {
+            zip.setLevel(1);
+            if (large.crc.equals("pipelined")) {
+                zip.setPipelinedCrc(large.executor);
+            }
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(large.sheet);
+            zip.closeEntry();
+        }
+        return sink.count;
+    }
+
+    @Override
+    protected ChainedOptionsBuilder configure(ChainedOptionsBuilder options) {
+        return options.addProfiler(GCProfiler.class);
+    }
+
+    static Function<OutputStream, ZipImpl> implementation(String name) {
+        switch (name) {
+            case "opc":
+                return OpcZip::new;
+            case "jdk":
+                return JdkZip::new;
+            case "commons":
+                return CommonsCompress::new;
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    static class CountingSink extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -5,12 +5,15 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -22,6 +25,8 @@ import java.util.zip.ZipOutputStream;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -38,6 +43,72 @@ class ZipCompatibilityTests {
         validate(generate(this::createWithWrapper));
     }
 
+    @Test
+    void pooled() throws IOException {
+        try (DeflaterPool pool = new DeflaterPool(1)) {
+            for (int i = 0; i < 3; i++) {
+                validate(generate(out -> createDirect(new OpcOutputStream(out, 64 * 1024, pool))));
+            }
+        }
+    }
+
+    @Test
+    void channel() throws IOException {
+        Path file = Files.createTempFile(Paths.get("target"), "channel", ".zip");
+        try {
+            byte[] incompressible = new byte[256 * 1024];
+            new Random(0).nextBytes(incompressible);
+            try (OpcOutputStream zip = new OpcOutputStream(FileChannel.open(file, StandardOpenOption.WRITE))) {
+                for (Map.Entry<String, String> entry : contents.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(entry.getKey()));
+                    zip.write(entry.getValue().getBytes());
+                    zip.closeEntry();
+                }
+                zip.putNextEntry(new ZipEntry("random.bin"));
+                zip.write(incompressible);
+                zip.closeEntry();
+            }
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                assertEquals(contents.size() + 1, zipFile.size());
+                for (Map.Entry<String, String> entry : contents.entrySet()) {
+                    assertEquals(entry.getValue(), readFully(zipFile.getInputStream(zipFile.getEntry(entry.getKey()))));
+                }
+                assertArrayEquals(incompressible, readAllBytes(zipFile.getInputStream(zipFile.getEntry("random.bin"))));
+            }
+        } finally {
+            file.toFile().delete();
+        }
+    }
+
+    @Test
+    void stored() throws IOException {
+        validate(generate(this::createStored));
+    }
+
+    @Test
+    void moreThan64kEntries() throws IOException {
+        int count = 70_000;
+        Path file = Files.createTempFile(Paths.get("target"), "entries", ".zip");
+        try {
+            try (OpcOutputStream zip = new OpcOutputStream(Files.newOutputStream(file))) {
+                for (int i = 0; i < count; i++) {
+                    zip.putNextEntry(new ZipEntry("file" + i + ".txt"));
+                    zip.write(new byte[]{'x'});
+                }
+            }
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                assertEquals(count, zipFile.size());
+                assertEquals("x", readFully(zipFile.getInputStream(zipFile.getEntry("file69999.txt"))));
+            }
+            try (org.apache.commons.compress.archivers.zip.ZipFile zipFile =
+                         new org.apache.commons.compress.archivers.zip.ZipFile(file.toFile())) {
+                assertEquals("x", readFully(zipFile.getInputStream(zipFile.getEntry("file69999.txt"))));
+            }
+        } finally {
+            file.toFile().delete();
+        }
+    }
+
     private void validate(byte[] zipBytes) throws IOException {
         assertThat(zipBytes.length, greaterThan(0));
         validateCommonsCompress(new ByteArrayInputStream(zipBytes));
@@ -106,7 +177,11 @@ class ZipCompatibilityTests {
     }
 
     private void createDirect(OutputStream out) {
-        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+        createDirect(new OpcOutputStream(out));
+    }
+
+    private void createDirect(OpcOutputStream opcOutputStream) {
+        try (OpcOutputStream zip = opcOutputStream) {
             for (Map.Entry<String, String> entry : contents.entrySet()) {
                 zip.putNextEntry(new ZipEntry(entry.getKey()));
                 PrintStream printer = new PrintStream(zip);
@@ -119,6 +194,32 @@ class ZipCompatibilityTests {
         }
     }
 
+    private void createStored(OutputStream out) {
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            Path file = Files.createTempFile(Paths.get("target"), "stored", ".txt");
+            int i = 0;
+            for (Map.Entry<String, String> entry : contents.entrySet()) {
+                byte[] bytes = entry.getValue().getBytes();
+                switch (i++ % 3) {
+                    case 0:
+                        zip.writeStoredEntry(entry.getKey(), bytes);
+                        break;
+                    case 1:
+                        Files.write(file, bytes);
+                        zip.writeStoredEntry(entry.getKey(), file);
+                        break;
+                    default:
+                        zip.putNextEntry(new ZipEntry(entry.getKey()));
+                        zip.write(bytes);
+                        zip.closeEntry();
+                }
+            }
+            file.toFile().delete();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     private void createWithWrapper(OutputStream out) {
         try (ZipOutputStream zip = new OpcZipOutputStream(out)) {
             for (Map.Entry<String, String> entry : contents.entrySet()) {
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
@@ -16,11 +17,18 @@ public abstract class BenchmarkBase {
     public void run() throws RunnerException {
         File dir = new File("target/csv/");
         dir.mkdirs();
-        Options options = new OptionsBuilder()
+        Options options = configure(new OptionsBuilder()
                 .include(Pattern.quote(getClass().getName()))
                 .resultFormat(ResultFormatType.CSV)
-                .result(dir + "/" + getClass().getSimpleName() + ".csv")
+                .result(dir + "/" + getClass().getSimpleName() + ".csv"))
                 .build();
         new Runner(options).run();
     }
+
+    /**
+     * Hook for additional options, e.g. profilers.
+     */
+    protected ChainedOptionsBuilder configure(ChainedOptionsBuilder options) {
+        return options;
+    }
 }
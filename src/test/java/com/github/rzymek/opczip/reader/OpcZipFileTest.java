@@ -0,0 +1,160 @@
+package com.github.rzymek.opczip.reader;
+
+import com.github.rzymek.opczip.OpcOutputStream;
+import com.github.rzymek.opczip.reader.skipping.OpcZipFile;
+import com.github.rzymek.opczip.utils.TempZip;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.rzymek.opczip.reader.FileListTest.XLSX_DIR;
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpcZipFileTest {
+
+    @ParameterizedTest
+    @ArgumentsSource(FileListTest.class)
+    void shouldReadSameContentsAsJDK(String filename) throws Exception {
+        assertSameAsJdk(resource(XLSX_DIR + filename).toFile());
+    }
+
+    @Test
+    void shouldReadZip64EndRecordAndStoredEntries() throws IOException {
+        File file = new File("target", "OpcZipFileTest.zip");
+        try (OpcOutputStream zip = new OpcOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < 70_000; i++) {
+                zip.putNextEntry(new ZipEntry("entry" + i + ".txt"));
+                zip.write(("entry " + i).getBytes());
+            }
+            zip.writeStoredEntry("stored.bin", new byte[]{1, 2, 3});
+        }
+        try (OpcZipFile zip = new OpcZipFile(file.toPath())) {
+            assertEquals(70_001, zip.size());
+            assertEquals("entry 69999", new String(readAllBytes(zip.getInputStream("entry69999.txt"))));
+            assertArrayEquals(new byte[]{1, 2, 3}, readAllBytes(zip.getInputStream("stored.bin")));
+            assertNull(zip.getInputStream("missing"));
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(FileListTest.class)
+    void shouldReadAllEntriesInParallel(String filename) throws Exception {
+        File file = resource(XLSX_DIR + filename).toFile();
+        Map<String, byte[]> contents = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (OpcZipFile opc = new OpcZipFile(file.toPath())) {
+            opc.forEachEntryParallel(executor, (entry, in) -> contents.put(entry.getName(), readAllBytes(in)));
+        } finally {
+            executor.shutdown();
+        }
+        try (ZipFile jdk = new ZipFile(file)) {
+            assertEquals(jdk.size(), contents.size());
+            for (Enumeration<? extends ZipEntry> entries = jdk.entries(); entries.hasMoreElements(); ) {
+                ZipEntry expected = entries.nextElement();
+                assertArrayEquals(readAllBytes(jdk.getInputStream(expected)), contents.get(expected.getName()), expected.getName());
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectNameLengthBeyondCentralDirectory() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write('a');
+        }
+        byte[] archive = out.toByteArray();
+        int cen = lastIndexOf(archive, new byte[]{'P', 'K', 1, 2});
+        archive[cen + 28] = (byte) 0xff; // file name length
+        archive[cen + 29] = (byte) 0xff;
+        try (TempZip temp = new TempZip("badCen")) {
+            Files.write(temp.file.toPath(), archive);
+            assertThrows(ZipException.class, () -> new OpcZipFile(temp.file.toPath()).close());
+        }
+    }
+
+    @Test
+    void shouldWaitForSubmittedEntriesWhenRejected() throws Exception {
+        File file = resource("/libre-rezipped.xlsx").toFile();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        Executor executor = task -> {
+            if (accepted.incrementAndGet() > 2) {
+                throw new RejectedExecutionException();
+            }
+            new Thread(task).start();
+        };
+        try (OpcZipFile opc = new OpcZipFile(file.toPath())) {
+            assertThrows(RejectedExecutionException.class, () -> opc.forEachEntryParallel(executor, (entry, in) -> {
+                running.incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                readAllBytes(in);
+                running.decrementAndGet();
+            }));
+            assertEquals(0, running.get());
+        }
+    }
+
+    private static int lastIndexOf(byte[] data, byte[] pattern) {
+        for (int i = data.length - pattern.length; i >= 0; i--) {
+            if (Arrays.equals(pattern, Arrays.copyOfRange(data, i, i + pattern.length))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertSameAsJdk(File file) throws IOException {
+        try (ZipFile jdk = new ZipFile(file); OpcZipFile opc = new OpcZipFile(file.toPath())) {
+            assertEquals(jdk.size(), opc.size());
+            for (Enumeration<? extends ZipEntry> entries = jdk.entries(); entries.hasMoreElements(); ) {
+                ZipEntry expected = entries.nextElement();
+                ZipEntry actual = opc.getEntry(expected.getName());
+                assertEquals(expected.getCrc(), actual.getCrc());
+                assertEquals(expected.getSize(), actual.getSize());
+                assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+                assertArrayEquals(
+                        readAllBytes(jdk.getInputStream(expected)),
+                        readAllBytes(opc.getInputStream(expected.getName())),
+                        expected.getName()
+                );
+            }
+        }
+    }
+
+    static Path resource(String name) {
+        try {
+            return Paths.get(OpcZipFileTest.class.getResource(name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(name, e);
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.github.rzymek.opczip.reader;
 
+import com.github.rzymek.opczip.OpcOutputStream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -42,24 +46,72 @@ public class PutAsideZipReaderTest {
 
     @Test
     void test() throws Exception {
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new FileInputStream(testFile))) {
+            test(reader);
+        }
+    }
+
+    @Test
+    void shouldSpillToDiskOverMemoryBudget() throws Exception {
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new FileInputStream(testFile), 0)) {
+            test(reader);
+        }
+    }
+
+    @Test
+    void shouldOpenEntryByName() throws Exception {
         try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new FileInputStream(testFile))) {
+            assertEquals("file_1.txt", reader.nextEntry().getName());
+            assertEquals("4444444444444444444444444444444444444444",
+                    ZipEntryReaderTest.toString(reader.openEntry("file_4.txt", entry -> !entry.getName().equals("file_3.txt"))));
+            assertEquals("2222222222222222222222222222222222222222", ZipEntryReaderTest.toString(reader.openEntry("file_2.txt")));
+            assertNull(reader.openEntry("file_3.txt"));
             assertEquals("file_1.txt", reader.nextEntry().getName());
             assertEquals("1111111111111111111111111111111111111111", ZipEntryReaderTest.toString(reader.getInputStream()));
-            ZipEntry zipEntry = reader.nextEntry();
-            assertEquals("file_2.txt", zipEntry.getName());
-            reader.putAsideForLater();
-            assertEquals("file_3.txt", reader.nextEntry().getName());
-            reader.skipEntry();
-            assertEquals("file_4.txt", reader.nextEntry().getName());
-            reader.putAsideForLater();
             assertEquals("file_5.txt", reader.nextEntry().getName());
-            assertEquals("5555555555555555555555555555555555555555", ZipEntryReaderTest.toString(reader.getInputStream()));
-            assertEquals("file_2.txt", reader.nextEntry().getName());
-            reader.skipEntry();
-            assertEquals("file_4.txt", reader.nextEntry().getName());
-            assertEquals("4444444444444444444444444444444444444444", ZipEntryReaderTest.toString(reader.getInputStream()));
             assertNull(reader.nextEntry());
+        }
+    }
+
+    @Test
+    void shouldKeepEntriesWithSameName() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            for (String content : new String[]{"one", "two", "three"}) {
+                zip.putNextEntry(new ZipEntry("dup"));
+                zip.write(content.getBytes(StandardCharsets.US_ASCII));
+            }
+            zip.putNextEntry(new ZipEntry("last"));
+        }
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(out.toByteArray()), 0)) {
+            assertNull(reader.openEntry("missing"));
+            assertEquals("one", ZipEntryReaderTest.toString(reader.openEntry("dup")));
+            assertEquals("dup", reader.nextEntry().getName());
+            assertEquals("two", ZipEntryReaderTest.toString(reader.getInputStream()));
+            assertEquals("dup", reader.nextEntry().getName());
+            assertEquals("three", ZipEntryReaderTest.toString(reader.getInputStream()));
+            assertEquals("last", reader.nextEntry().getName());
             assertNull(reader.nextEntry());
         }
     }
+
+    private static void test(PutAsideZipStreamReader reader) throws IOException {
+        assertEquals("file_1.txt", reader.nextEntry().getName());
+        assertEquals("1111111111111111111111111111111111111111", ZipEntryReaderTest.toString(reader.getInputStream()));
+        ZipEntry zipEntry = reader.nextEntry();
+        assertEquals("file_2.txt", zipEntry.getName());
+        reader.putAsideForLater();
+        assertEquals("file_3.txt", reader.nextEntry().getName());
+        reader.skipEntry();
+        assertEquals("file_4.txt", reader.nextEntry().getName());
+        reader.putAsideForLater();
+        assertEquals("file_5.txt", reader.nextEntry().getName());
+        assertEquals("5555555555555555555555555555555555555555", ZipEntryReaderTest.toString(reader.getInputStream()));
+        assertEquals("file_2.txt", reader.nextEntry().getName());
+        reader.skipEntry();
+        assertEquals("file_4.txt", reader.nextEntry().getName());
+        assertEquals("4444444444444444444444444444444444444444", ZipEntryReaderTest.toString(reader.getInputStream()));
+        assertNull(reader.nextEntry());
+        assertNull(reader.nextEntry());
+    }
 }
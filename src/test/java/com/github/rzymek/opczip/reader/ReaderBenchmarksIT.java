@@ -0,0 +1,307 @@
+package com.github.rzymek.opczip.reader;
+
+import com.github.rzymek.opczip.OpcOutputStream;
+import com.github.rzymek.opczip.base.BenchmarkBase;
+import com.github.rzymek.opczip.base.ZipImpl;
+import com.github.rzymek.opczip.implementations.JdkZip;
+import com.github.rzymek.opczip.implementations.OpcZip;
+import com.github.rzymek.opczip.reader.skipping.OpcZipFile;
+import com.github.rzymek.opczip.reader.skipping.ZipStreamReader;
+import com.github.rzymek.opczip.utils.SpreadsheetML;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+
+/**
+ * Streaming readers versus JDK and commons-compress readers, on archives written by {@link OpcOutputStream}
+ * and by {@link java.util.zip.ZipOutputStream}. Workbook has {@value #SHEETS} sheets followed by shared strings.
+ * <ul>
+ * <li>{@code fullExtraction} - decompress every entry</li>
+ * <li>{@code findOne} - decompress one sheet from the middle, skipping the rest</li>
+ * <li>{@code putAsideHeavy} - shared strings are needed before the sheets that precede them</li>
+ * </ul>
+ * {@code megabytes} and {@code entries} counters give decompressed MB/s and entries/s,
+ * {@code gc.alloc.rate.norm} divided by entries per operation gives allocation per entry.
+ * {@link ZipInputStream} can not read ZIP64 data descriptors written by {@link OpcOutputStream},
+ * so it is measured separately ({@code zipInputStream*} benchmarks), on {@code jdk} archive only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmarksIT extends BenchmarkBase {
+    private static final int SHEETS = 16;
+    private static final int SHEET_SIZE = 512 * 1024;
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+    private static final String TARGET = sheet(SHEETS / 2);
+
+    @State(Scope.Benchmark)
+    public static class Archive {
+        @Param({"opc", "jdk"})
+        String source;
+        @Param({"stream", "channel", "putAside", "zipFile", "commons", "opcZipFile"})
+        String reader;
+
+        File file;
+        byte[] bytes;
+
+        @Setup
+        public void setup() throws Exception {
+            file = workbook(source);
+            bytes = readFile(file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class JdkArchive {
+        byte[] bytes;
+
+        @Setup
+        public void setup() throws Exception {
+            bytes = readFile(workbook("jdk"));
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public double megabytes;
+        public long entries;
+        final byte[] buf = new byte[8192];
+
+        void consume(InputStream in) throws IOException {
+            long n = 0;
+            for (int read; (read = in.read(buf)) >= 0; ) {
+                n += read;
+            }
+            megabytes += n / 1e6;
+            entries++;
+        }
+
+        void consume(byte[] data) {
+            megabytes += data.length / 1e6;
+            entries++;
+        }
+    }
+
+    @Benchmark
+    public void fullExtraction(Archive archive, Counters counters) throws IOException {
+        switch (archive.reader) {
+            case "stream":
+            case "channel":
+                try (ZipStreamReader reader = streamReader(archive)) {
+                    while (reader.nextEntry() != null) {
+                        counters.consume(reader.getUncompressedStream());
+                    }
+                }
+                break;
+            case "putAside":
+                try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive.bytes))) {
+                    while (reader.nextEntry() != null) {
+                        counters.consume(reader.getInputStream());
+                    }
+                }
+                break;
+            case "commons":
+                try (ZipArchiveInputStream zip = new ZipArchiveInputStream(new ByteArrayInputStream(archive.bytes))) {
+                    while (zip.getNextZipEntry() != null) {
+                        counters.consume(zip);
+                    }
+                }
+                break;
+            case "zipFile":
+                try (ZipFile zip = new ZipFile(archive.file)) {
+                    for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                        counters.consume(zip.getInputStream(entries.nextElement()));
+                    }
+                }
+                break;
+            case "opcZipFile":
+                try (OpcZipFile zip = new OpcZipFile(archive.file.toPath())) {
+                    for (ZipEntry entry : zip.entries()) {
+                        counters.consume(zip.getInputStream(entry.getName()));
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(archive.reader);
+        }
+    }
+
+    @Benchmark
+    public void findOne(Archive archive, Counters counters) throws IOException {
+        switch (archive.reader) {
+            case "stream":
+            case "channel":
+                try (ZipStreamReader reader = streamReader(archive)) {
+                    reader.nextEntry(TARGET::contentEquals);
+                    counters.consume(reader.getUncompressedStream());
+                }
+                break;
+            case "putAside":
+                try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive.bytes))) {
+                    counters.consume(reader.openEntry(TARGET, entry -> false));
+                }
+                break;
+            case "commons":
+                try (ZipArchiveInputStream zip = new ZipArchiveInputStream(new ByteArrayInputStream(archive.bytes))) {
+                    while (!zip.getNextZipEntry().getName().equals(TARGET)) {
+                        // entry data is skipped by getNextZipEntry
+                    }
+                    counters.consume(zip);
+                }
+                break;
+            case "zipFile":
+                try (ZipFile zip = new ZipFile(archive.file)) {
+                    counters.consume(zip.getInputStream(zip.getEntry(TARGET)));
+                }
+                break;
+            case "opcZipFile":
+                try (OpcZipFile zip = new OpcZipFile(archive.file.toPath())) {
+                    counters.consume(zip.getInputStream(TARGET));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(archive.reader);
+        }
+    }
+
+    @Benchmark
+    public void putAsideHeavy(Archive archive, Counters counters) throws IOException {
+        switch (archive.reader) {
+            case "stream":
+            case "channel":
+                try (ZipStreamReader reader = streamReader(archive)) {
+                    List<byte[]> compressed = new ArrayList<>();
+                    while (!reader.nextEntry().getName().equals(SHARED_STRINGS)) {
+                        compressed.add(readAllBytes(reader.getCompressedStream()));
+                    }
+                    counters.consume(reader.getUncompressedStream());
+                    for (byte[] sheet : compressed) {
+                        counters.consume(ZipStreamReader.uncompressed(new ByteArrayInputStream(sheet)));
+                    }
+                }
+                break;
+            case "putAside":
+                try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive.bytes))) {
+                    counters.consume(reader.openEntry(SHARED_STRINGS));
+                    while (reader.nextEntry() != null) {
+                        counters.consume(reader.getInputStream());
+                    }
+                }
+                break;
+            case "commons":
+                try (ZipArchiveInputStream zip = new ZipArchiveInputStream(new ByteArrayInputStream(archive.bytes))) {
+                    List<byte[]> sheets = new ArrayList<>();
+                    while (!zip.getNextZipEntry().getName().equals(SHARED_STRINGS)) {
+                        sheets.add(readAllBytes(zip));
+                    }
+                    counters.consume(zip);
+                    sheets.forEach(counters::consume);
+                }
+                break;
+            case "zipFile":
+                try (ZipFile zip = new ZipFile(archive.file)) {
+                    counters.consume(zip.getInputStream(zip.getEntry(SHARED_STRINGS)));
+                    for (int i = 1; i <= SHEETS; i++) {
+                        counters.consume(zip.getInputStream(zip.getEntry(sheet(i))));
+                    }
+                }
+                break;
+            case "opcZipFile":
+                try (OpcZipFile zip = new OpcZipFile(archive.file.toPath())) {
+                    counters.consume(zip.getInputStream(SHARED_STRINGS));
+                    for (int i = 1; i <= SHEETS; i++) {
+                        counters.consume(zip.getInputStream(sheet(i)));
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(archive.reader);
+        }
+    }
+
+    @Benchmark
+    public void zipInputStreamFullExtraction(JdkArchive archive, Counters counters) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.bytes))) {
+            while (zip.getNextEntry() != null) {
+                counters.consume(zip);
+            }
+        }
+    }
+
+    @Benchmark
+    public void zipInputStreamFindOne(JdkArchive archive, Counters counters) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.bytes))) {
+            while (!zip.getNextEntry().getName().equals(TARGET)) {
+                // entry data is skipped by getNextEntry
+            }
+            counters.consume(zip);
+        }
+    }
+
+    @Benchmark
+    public void zipInputStreamPutAsideHeavy(JdkArchive archive, Counters counters) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.bytes))) {
+            List<byte[]> sheets = new ArrayList<>();
+            while (!zip.getNextEntry().getName().equals(SHARED_STRINGS)) {
+                sheets.add(readAllBytes(zip));
+            }
+            counters.consume(zip);
+            sheets.forEach(counters::consume);
+        }
+    }
+
+    @Override
+    protected ChainedOptionsBuilder configure(ChainedOptionsBuilder options) {
+        return options.addProfiler(GCProfiler.class);
+    }
+
+    private static ZipStreamReader streamReader(Archive archive) throws IOException {
+        return archive.reader.equals("channel")
+                ? new ZipStreamReader(FileChannel.open(archive.file.toPath()))
+                : new ZipStreamReader(new ByteArrayInputStream(archive.bytes));
+    }
+
+    private static File workbook(String source) throws Exception {
+        File file = new File("target", "ReaderBenchmarksIT_" + source + ".zip");
+        try (OutputStream out = new FileOutputStream(file);
+             ZipImpl zip = source.equals("opc") ? new OpcZip(out) : new JdkZip(out)) {
+            for (int i = 1; i <= SHEETS; i++) {
+                write(zip, sheet(i), SpreadsheetML.sheet(SHEET_SIZE, i));
+            }
+            write(zip, SHARED_STRINGS, SpreadsheetML.sheet(SHEET_SIZE, 0));
+        }
+        return file;
+    }
+
+    private static void write(ZipImpl zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data, 0, data.length);
+        zip.closeEntry();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return readAllBytes(in);
+        }
+    }
+
+    private static String sheet(int i) {
+        return "xl/worksheets/sheet" + i + ".xml";
+    }
+}
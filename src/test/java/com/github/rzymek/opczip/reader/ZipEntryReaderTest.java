@@ -1,17 +1,23 @@
 package com.github.rzymek.opczip.reader;
 
+import com.github.rzymek.opczip.OpcOutputStream;
 import com.github.rzymek.opczip.reader.skipping.ZipStreamReader;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Random;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
 import static com.github.rzymek.opczip.reader.PutAsideZipReaderTest.generateEntry;
+import static com.github.rzymek.opczip.reader.skipping.ZipStreamReader.uncompressed;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -57,27 +63,64 @@ public class ZipEntryReaderTest {
         test(ZipEntryReaderTest.testFile);
     }
 
-    private void test(File file) throws IOException {
-        try (ZipStreamReader reader = new ZipStreamReader(new FileInputStream(file))) {
-            ZipEntry entry = reader.nextEntry();
-            assertEquals("file_1.txt", entry.getName());
-            assertEquals("1111111111111111111111111111111111111111", toString(reader.getUncompressedStream()));
-            entry = reader.nextEntry();
-            assertEquals("file_2.txt", entry.getName());
-            reader.skipStream();
-            entry = reader.nextEntry();
-            assertEquals("file_3.txt", entry.getName());
+    @Test
+    void testSeekableChannel() throws IOException {
+        try (ZipStreamReader reader = new ZipStreamReader(FileChannel.open(testFile.toPath()))) {
+            test(reader);
+        }
+    }
+
+    @Test
+    void shouldSkipByRepositioningChannel() throws IOException {
+        File file = OpcZipFileTest.resource("/libre-rezipped.xlsx").toFile();
+        try (ZipStreamReader reader = new ZipStreamReader(FileChannel.open(file.toPath()));
+             ZipFile jdk = new ZipFile(file)) {
+            ZipEntry entry;
+            while (!(entry = reader.nextEntry()).getName().equals("xl/worksheets/sheet1.xml")) {
+                reader.skipStream();
+            }
+            ZipEntry expected = jdk.getEntry(entry.getName());
+            assertEquals(expected.getCompressedSize(), entry.getCompressedSize());
+            assertArrayEquals(readAllBytes(jdk.getInputStream(expected)), readAllBytes(reader.getUncompressedStream()));
+        }
+    }
+
+    @Test
+    void shouldSkipEntriesNotMatchingFilter() throws IOException {
+        try (ZipStreamReader reader = new ZipStreamReader(new FileInputStream(testFile))) {
+            assertEquals("file_3.txt", reader.nextEntry(ZipStreamReader.glob("file_{3,5}.txt")).getName());
             assertEquals("3333333333333333333333333333333333333333", toString(reader.getUncompressedStream()));
-            assertEquals("file_4.txt", reader.nextEntry().getName());
+            assertEquals("file_5.txt", reader.nextEntry(name -> name.charAt(5) == '5').getName());
             reader.skipStream();
-            assertEquals("file_5.txt", reader.nextEntry().getName());
-            assertEquals("5555555555555555555555555555555555555555", toString(reader.getUncompressedStream()));
-            assertNull(reader.nextEntry());
-            assertNull(reader.getCompressedStream());
-            assertNull(reader.nextEntry());
+            assertNull(reader.nextEntry(ZipStreamReader.glob("*")));
+        }
+    }
+
+    private void test(File file) throws IOException {
+        try (ZipStreamReader reader = new ZipStreamReader(new FileInputStream(file))) {
+            test(reader);
         }
     }
 
+    private void test(ZipStreamReader reader) throws IOException {
+        ZipEntry entry = reader.nextEntry();
+        assertEquals("file_1.txt", entry.getName());
+        assertEquals("1111111111111111111111111111111111111111", toString(reader.getUncompressedStream()));
+        entry = reader.nextEntry();
+        assertEquals("file_2.txt", entry.getName());
+        reader.skipStream();
+        entry = reader.nextEntry();
+        assertEquals("file_3.txt", entry.getName());
+        assertEquals("3333333333333333333333333333333333333333", toString(reader.getUncompressedStream()));
+        assertEquals("file_4.txt", reader.nextEntry().getName());
+        reader.skipStream();
+        assertEquals("file_5.txt", reader.nextEntry().getName());
+        assertEquals("5555555555555555555555555555555555555555", toString(reader.getUncompressedStream()));
+        assertNull(reader.nextEntry());
+        assertNull(reader.getCompressedStream());
+        assertNull(reader.nextEntry());
+    }
+
     @Test
     void testXlsxReZipped() throws IOException {
         try (ZipStreamReader reader = new ZipStreamReader(getClass().getResourceAsStream("/libre-rezipped.xlsx"))) {
@@ -99,6 +142,177 @@ public class ZipEntryReaderTest {
         }
     }
 
-}
+    @Test
+    void shouldIgnoreSignaturesInsideEntryData() throws IOException {
+        byte[] content = "text PK\u0003\u0004 PK\u0001\u0002 PK\u0007\u0008 more text PK\u0007\u0008".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream jdk = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(jdk)) {
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            writeEntries(zip, content);
+        }
+        assertEntries(jdk.toByteArray(), content);
+        ByteArrayOutputStream opc = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(opc)) {
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            writeEntries(zip, content);
+        }
+        assertEntries(opc.toByteArray(), content);
+    }
+
+    @Test
+    void shouldNotEndEntryAtEmbeddedArchiveHeaders() throws IOException {
+        ByteArrayOutputStream embedded = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(embedded)) {
+            zip.putNextEntry(new ZipEntry("inner.txt"));
+            zip.write("inner".getBytes(StandardCharsets.US_ASCII));
+        }
+        byte[] doc = embedded.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            zip.putNextEntry(new ZipEntry("xl/embeddings/doc.zip"));
+            zip.write(doc);
+            zip.putNextEntry(new ZipEntry("after.txt"));
+            zip.write("after".getBytes(StandardCharsets.US_ASCII));
+        }
+        byte[] archive = out.toByteArray();
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("xl/embeddings/doc.zip", reader.nextEntry().getName());
+            reader.skipStream();
+            assertEquals("after.txt", reader.nextEntry().getName());
+            assertEquals("after", toString(reader.getUncompressedStream()));
+            assertNull(reader.nextEntry());
+        }
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("xl/embeddings/doc.zip", reader.nextEntry().getName());
+            reader.putAsideForLater();
+            assertEquals("after.txt", reader.nextEntry().getName());
+            reader.skipEntry();
+            assertEquals("xl/embeddings/doc.zip", reader.nextEntry().getName());
+            assertArrayEquals(doc, readAllBytes(reader.getInputStream()));
+            assertNull(reader.nextEntry());
+        }
+    }
+
+    @Test
+    void shouldEndEntryAtUnsignedDescriptor() throws IOException {
+        byte[] random = new byte[100_000];
+        new Random(0).nextBytes(random);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            generateEntry(zip, '1', SIZE);
+            zip.putNextEntry(new ZipEntry("random.bin"));
+            zip.write(random);
+            generateEntry(zip, '3', SIZE);
+        }
+        byte[] archive = withoutDescriptorSignatures(out.toByteArray());
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("file_1.txt", reader.nextEntry().getName());
+            reader.skipStream();
+            assertEquals("random.bin", reader.nextEntry().getName());
+            assertArrayEquals(random, readAllBytes(uncompressed(reader.getCompressedStream())));
+            assertEquals("file_3.txt", reader.nextEntry().getName());
+            assertEquals("3333333333333333333333333333333333333333", toString(reader.getUncompressedStream()));
+            assertNull(reader.nextEntry());
+        }
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("3333333333333333333333333333333333333333", toString(reader.openEntry("file_3.txt")));
+            assertEquals("1111111111111111111111111111111111111111", toString(reader.openEntry("file_1.txt")));
+        }
+    }
+
+    @Test
+    void shouldReadStoredEntriesAsIs() throws IOException {
+        byte[] image = new byte[10_000];
+        new Random(0).nextBytes(image);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            zip.writeStoredEntry("xl/media/image1.png", image);
+            zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+            zip.write("<workbook/>".getBytes(StandardCharsets.US_ASCII));
+            zip.writeStoredEntry("xl/media/image2.png", image);
+        }
+        byte[] archive = out.toByteArray();
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("xl/media/image1.png", reader.nextEntry().getName());
+            assertArrayEquals(image, readAllBytes(reader.getUncompressedStream()));
+            assertEquals("xl/workbook.xml", reader.nextEntry().getName());
+            assertEquals("<workbook/>", toString(reader.getUncompressedStream()));
+            assertEquals("xl/media/image2.png", reader.nextEntry().getName());
+            assertArrayEquals(image, readAllBytes(reader.getUncompressedStream()));
+            assertNull(reader.nextEntry());
+        }
+        try (PutAsideZipStreamReader reader = new PutAsideZipStreamReader(new ByteArrayInputStream(archive))) {
+            assertEquals("<workbook/>", toString(reader.openEntry("xl/workbook.xml")));
+            assertArrayEquals(image, readAllBytes(reader.openEntry("xl/media/image1.png")));
+            assertEquals("xl/media/image2.png", reader.nextEntry().getName());
+            reader.putAsideForLater();
+            assertEquals("xl/media/image2.png", reader.nextEntry().getName());
+            assertArrayEquals(image, readAllBytes(reader.getInputStream()));
+            assertNull(reader.nextEntry());
+        }
+    }
+
+    @Test
+    void shouldInflateUntilEndOfDeflateStream() throws IOException {
+        byte[] random = new byte[100_000];
+        new Random(0).nextBytes(random);
+        System.arraycopy("PK\u0007\u0008".getBytes(StandardCharsets.US_ASCII), 0, random, 5000, 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OpcOutputStream zip = new OpcOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("random.bin"));
+            zip.write(random);
+            zip.putNextEntry(new ZipEntry("text.txt"));
+            zip.write("text".getBytes(StandardCharsets.US_ASCII));
+        }
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = reader.nextEntry();
+            assertArrayEquals(random, readAllBytes(reader.getUncompressedStream()));
+            assertEquals(random.length, entry.getSize());
+            assertEquals("text.txt", reader.nextEntry().getName());
+            assertEquals("text", toString(reader.getUncompressedStream()));
+            assertNull(reader.nextEntry());
+        }
+    }
+
+    private static void writeEntries(ZipOutputStream zip, byte[] content) throws IOException {
+        for (String name : new String[]{"a.txt", "b.txt"}) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content);
+            zip.closeEntry();
+        }
+    }
+
+    private static void writeEntries(OpcOutputStream zip, byte[] content) throws IOException {
+        for (String name : new String[]{"a.txt", "b.txt"}) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content);
+            zip.closeEntry();
+        }
+    }
 
+    private static void assertEntries(byte[] zip, byte[] content) throws IOException {
+        try (ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(zip))) {
+            assertEquals("a.txt", reader.nextEntry().getName());
+            reader.skipStream();
+            assertEquals("b.txt", reader.nextEntry().getName());
+            assertEquals(new String(content, StandardCharsets.US_ASCII), toString(reader.getUncompressedStream()));
+            assertNull(reader.nextEntry());
+        }
+    }
 
+    /**
+     * Drops {@code PK\7\8} signatures, which are optional. Entry contents must not contain it.
+     */
+    private static byte[] withoutDescriptorSignatures(byte[] zip) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < zip.length; i++) {
+            if (i + 4 <= zip.length && zip[i] == 'P' && zip[i + 1] == 'K' && zip[i + 2] == 7 && zip[i + 3] == 8) {
+                i += 3;
+            } else {
+                out.write(zip[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+}
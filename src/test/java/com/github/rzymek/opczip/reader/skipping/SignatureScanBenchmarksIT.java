@@ -0,0 +1,64 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import com.github.rzymek.opczip.base.BenchmarkBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
+
+/**
+ * Byte-by-byte {@link SignatureMatcher}s (previous implementation of {@link CompressedEntryInputStream})
+ * versus {@link SignatureScanner} over 1 MiB of deflate-like (random) data containing no signatures.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureScanBenchmarksIT extends BenchmarkBase {
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[1024 * 1024];
+        new Random(0).nextBytes(data);
+        for (int i = 0; i + 4 <= data.length; i++) {
+            if (data[i] == 'P' && data[i + 1] == 'K') {
+                data[i + 1] = 'k';
+            }
+        }
+    }
+
+    @Benchmark
+    public int matcher() {
+        SignatureMatcher cen = new SignatureMatcher(CEN);
+        SignatureMatcher lfh = new SignatureMatcher(LFH);
+        SignatureMatcher dat = new SignatureMatcher(DAT);
+        int found = 0;
+        for (byte b : data) {
+            if (dat.matchNext(b)) {
+                found++;
+            }
+            if (lfh.matchNext(b) || cen.matchNext(b)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int scanner() {
+        int found = 0;
+        int chunk = CompressedEntryInputStream.BUFFER_SIZE;
+        for (int from = 0; from < data.length; from += chunk) {
+            if (SignatureScanner.indexOf(data, from, Math.min(from + chunk, data.length), true) >= 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
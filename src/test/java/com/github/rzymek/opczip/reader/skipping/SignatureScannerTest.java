@@ -0,0 +1,50 @@
+package com.github.rzymek.opczip.reader.skipping;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.github.rzymek.opczip.reader.skipping.ZipReadSpec.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SignatureScannerTest {
+
+    @Test
+    void shouldFindFirstSignature() {
+        Random random = new Random(0);
+        byte[] data = new byte[64 * 1024];
+        for (int round = 0; round < 100; round++) {
+            random.nextBytes(data);
+            Signature signature = new Signature[]{LFH, CEN, DAT}[round % 3];
+            int at = random.nextInt(data.length - 4);
+            System.arraycopy(signature.bytes, 0, data, at, 4);
+            int from = random.nextInt(16);
+            int to = data.length - random.nextInt(16);
+            for (boolean dat : new boolean[]{true, false}) {
+                assertEquals(naiveIndexOf(data, from, to, dat), SignatureScanner.indexOf(data, from, to, dat));
+            }
+        }
+    }
+
+    @Test
+    void shouldDetectPartialSignatureAtTheEnd() {
+        byte[] data = {1, 2, 3, 'P', 'K', 7};
+        assertEquals(3, SignatureScanner.partialSuffix(data, 0, data.length, true));
+        assertEquals(0, SignatureScanner.partialSuffix(data, 0, data.length, false));
+        assertEquals(2, SignatureScanner.partialSuffix(data, 0, data.length - 1, false));
+        assertEquals(1, SignatureScanner.partialSuffix(data, 0, data.length - 2, false));
+        assertEquals(0, SignatureScanner.partialSuffix(data, 0, data.length - 3, false));
+    }
+
+    private static int naiveIndexOf(byte[] data, int from, int to, boolean dat) {
+        for (int i = from; i + 4 <= to; i++) {
+            for (Signature signature : dat ? new Signature[]{LFH, CEN, DAT} : new Signature[]{LFH, CEN}) {
+                if (data[i] == signature.at(0) && data[i + 1] == signature.at(1)
+                        && data[i + 2] == signature.at(2) && data[i + 3] == signature.at(3)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
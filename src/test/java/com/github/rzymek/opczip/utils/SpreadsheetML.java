@@ -0,0 +1,37 @@
+package com.github.rzymek.opczip.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic SpreadsheetML-like worksheet content: highly compressible, repetitive markup
+ * with varying numbers and shared string references, as in real xlsx sheets.
+ */
+public class SpreadsheetML {
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>";
+    private static final String FOOTER = "</sheetData></worksheet>";
+    private static final String[] COLUMNS = {"A", "B", "C", "D", "E", "F"};
+
+    /**
+     * @return worksheet of approximately {@code size} bytes
+     */
+    public static byte[] sheet(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder xml = new StringBuilder(size + 512).append(HEADER);
+        for (int row = 1; xml.length() < size - FOOTER.length(); row++) {
+            xml.append("<row r=\"").append(row).append("\">");
+            for (int col = 0; col < COLUMNS.length; col++) {
+                xml.append("<c r=\"").append(COLUMNS[col]).append(row).append('"');
+                if (col % 3 == 0) {
+                    xml.append(" t=\"s\"><v>").append(random.nextInt(1000)).append("</v></c>");
+                } else {
+                    xml.append(" s=\"1\"><v>").append(random.nextInt(100_000) / 100.0).append("</v></c>");
+                }
+            }
+            xml.append("</row>");
+        }
+        xml.append(FOOTER);
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.rzymek.opczip.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Archive file in {@code target}, deleted on close.
+ */
+public class TempZip implements AutoCloseable {
+    public final File file;
+
+    public TempZip(String prefix) throws IOException {
+        this.file = Files.createTempFile(Paths.get("target"), prefix, ".zip").toFile();
+    }
+
+    @Override
+    public void close() {
+        file.delete();
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.rzymek.opczip.utils;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rzymek.opczip.reader.InputStreamUtils.readAllBytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class ZipAssertions {
+
+    /**
+     * Asserts both the content and the CRC-32 recorded in the central directory.
+     */
+    public static void assertContents(ZipFile zipFile, String name, byte[] expected) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertNotNull(entry, name);
+        assertArrayEquals(expected, readAllBytes(zipFile.getInputStream(entry)), name);
+        CRC32 crc = new CRC32();
+        crc.update(expected);
+        assertEquals(crc.getValue(), entry.getCrc(), name);
+    }
+}